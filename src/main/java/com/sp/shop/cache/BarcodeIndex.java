@@ -0,0 +1,82 @@
+package com.sp.shop.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sp.shop.entity.Product;
+
+/**
+ * In-memory barcode to product index, scoped per shop, used by register scans and checkout.
+ * Entries are bounded in number and expire on their own so other nodes' writes are picked up eventually.
+ */
+@Component
+public class BarcodeIndex {
+
+    private record Key(Long shopId, String barcode) {
+    }
+
+    private final Cache<Key, Product> products;
+
+    public BarcodeIndex(
+            @Value("${shopmate.barcode-index.maximum-size:50000}") long maximumSize,
+            @Value("${shopmate.barcode-index.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    public Optional<Product> get(Long shopId, String barcode) {
+        return Optional.ofNullable(products.getIfPresent(new Key(shopId, barcode)));
+    }
+
+    /**
+     * Looks up several barcodes at once; barcodes that are not indexed are left out of the result.
+     */
+    public Map<String, Product> getAll(Long shopId, Collection<String> barcodes) {
+        Map<String, Product> found = new HashMap<>();
+        for (String barcode : barcodes) {
+            Product product = products.getIfPresent(new Key(shopId, barcode));
+            if (product != null) {
+                found.put(barcode, product);
+            }
+        }
+        return found;
+    }
+
+    public void put(Product product) {
+        products.put(new Key(product.getShop().getId(), product.getBarcode()), product);
+    }
+
+    /**
+     * Drops a barcode from the index. Inside a transaction the eviction waits for the commit,
+     * otherwise a concurrent scan could reload the row before the change is visible.
+     */
+    public void evict(Long shopId, String barcode) {
+        Key key = new Key(shopId, barcode);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    products.invalidate(key);
+                }
+            });
+        } else {
+            products.invalidate(key);
+        }
+    }
+
+    public void evictAll(Long shopId, Collection<String> barcodes) {
+        barcodes.forEach(barcode -> evict(shopId, barcode));
+    }
+}
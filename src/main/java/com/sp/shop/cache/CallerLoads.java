@@ -0,0 +1,41 @@
+package com.sp.shop.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+/**
+ * Fills cache misses on the calling thread rather than inside the cache. Caffeine runs a mapping function
+ * under a ConcurrentHashMap bin lock, a {@code synchronized} block, so a database read in there would pin
+ * a virtual thread to its carrier for the whole round trip. The cache only ever holds a future: the first
+ * caller for a key loads and completes it, and concurrent callers for the same key wait on it unpinned.
+ */
+public final class CallerLoads {
+
+    private CallerLoads() {
+    }
+
+    public static <K, V> V get(AsyncCache<K, V> cache, K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> value = cache.get(key, (k, executor) -> created);
+        if (value == created) {
+            try {
+                created.complete(loader.apply(key));
+            } catch (RuntimeException | Error e) {
+                // Caffeine drops a failed future, so the next caller loads again
+                created.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            throw e;
+        }
+    }
+}
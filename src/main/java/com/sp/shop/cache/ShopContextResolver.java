@@ -0,0 +1,97 @@
+package com.sp.shop.cache;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.entity.User;
+import com.sp.shop.filter.JwtRequestFilter;
+import com.sp.shop.repository.ShopRepository;
+import com.sp.shop.repository.UserRepository;
+
+/**
+ * Resolves the shop owned by an authenticated user. The result is memoised on the current request
+ * and in a short-lived shared cache, so the username, user and shop lookups run at most once per request.
+ */
+@Component
+public class ShopContextResolver {
+
+    private static final String REQUEST_ATTRIBUTE = ShopContextResolver.class.getName() + ".shop.";
+
+    private final UserRepository userRepository;
+    private final ShopRepository shopRepository;
+    private final AsyncCache<String, Shop> shops;
+
+    public ShopContextResolver(
+            UserRepository userRepository,
+            ShopRepository shopRepository,
+            @Value("${shopmate.shop-context.maximum-size:10000}") long maximumSize,
+            @Value("${shopmate.shop-context.expire-after-write:30s}") Duration expireAfterWrite) {
+        this.userRepository = userRepository;
+        this.shopRepository = shopRepository;
+        this.shops = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .buildAsync();
+    }
+
+    public Shop resolveShop(String username) {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            Shop shop = (Shop) request.getAttribute(REQUEST_ATTRIBUTE + username, RequestAttributes.SCOPE_REQUEST);
+            if (shop != null) {
+                return shop;
+            }
+        }
+
+        Shop shop = CallerLoads.get(shops, username, this::loadShop);
+        if (request != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE + username, shop, RequestAttributes.SCOPE_REQUEST);
+        }
+        return shop;
+    }
+
+    /**
+     * Forgets the cached shop for a user whose account was renamed, changed or deleted. Inside a
+     * transaction it is forgotten again after the commit, since a request in between may have cached
+     * the old rows.
+     */
+    public void evict(String username) {
+        shops.synchronous().invalidate(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    shops.synchronous().invalidate(username);
+                }
+            });
+        }
+    }
+
+    private Shop loadShop(String username) {
+        // Tokens carry the shop id, which turns the user + shop lookups into one primary key read
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        Long shopId = request != null
+                ? (Long) request.getAttribute(JwtRequestFilter.SHOP_ID_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+                : null;
+        if (shopId != null) {
+            Shop shop = shopRepository.findById(shopId)
+                    .filter(candidate -> candidate.getOwner() != null && username.equals(candidate.getOwner().getUsername()))
+                    .orElse(null);
+            if (shop != null) {
+                return shop;
+            }
+        }
+
+        User user = userRepository.findByUsername(username).orElseThrow();
+        return shopRepository.findByOwner(user).orElseThrow();
+    }
+}
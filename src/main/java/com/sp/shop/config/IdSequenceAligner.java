@@ -0,0 +1,47 @@
+package com.sp.shop.config;
+
+import java.util.Map;
+
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bill, BillItem and Product ids come from pooled sequences (allocation size 50). MySQL has no
+ * sequences, so Hibernate keeps each one in a single-row table; rows written with IDENTITY ids, for
+ * instance by an older node during a rolling deploy, would collide with its values. Right after the
+ * migrations, and so before the EntityManagerFactory or the web server starts, every sequence table
+ * is moved past the highest id already in use.
+ */
+@Component
+public class IdSequenceAligner implements FlywayMigrationStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceAligner.class);
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    // sequence table -> entity table
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "bill_seq", "bill",
+            "bill_item_seq", "bill_item",
+            "product_seq", "product");
+
+    @Override
+    public void migrate(Flyway flyway) {
+        flyway.migrate();  // the sequence tables are created by the migrations
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(flyway.getConfiguration().getDataSource());
+
+        SEQUENCES.forEach((sequence, table) -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            // The pooled optimizer hands out (next_val - allocation + 1) .. next_val, so stay a full block ahead
+            long nextVal = maxId + ALLOCATION_SIZE + 1;
+            int updated = jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ? WHERE next_val < ?", nextVal, nextVal);
+            if (updated > 0) {
+                log.info("Moved {} to {} past existing {} ids", sequence, nextVal, table);
+            }
+        });
+    }
+}
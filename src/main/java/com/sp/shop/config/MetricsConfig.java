@@ -0,0 +1,65 @@
+package com.sp.shop.config;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.cache.CacheManager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.HibernateMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import io.micrometer.core.instrument.config.MeterFilter;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Every per-shop shopmate.* meter is tagged by shop, and each shop adds its own series. The first
+ * {@code shopmate.metrics.max-shop-tags} shops seen keep their own series; later ones share shop="other".
+ * Hibernate's statistics and the second-level cache regions are bound here too, since Spring Boot no
+ * longer binds them itself.
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String OTHER_SHOPS = "other";
+
+    @Bean
+    public MeterFilter shopTagLimit(@Value("${shopmate.metrics.max-shop-tags:200}") int maxShops) {
+        Set<String> shops = ConcurrentHashMap.newKeySet();
+        return new MeterFilter() {
+            @Override
+            public Meter.Id map(Meter.Id id) {
+                String shop = id.getTag("shop");
+                if (shop == null || !id.getName().startsWith("shopmate.") || shops.contains(shop)) {
+                    return id;
+                }
+                if (shops.size() < maxShops) {
+                    shops.add(shop);
+                    return id;
+                }
+                return id.withTag(Tag.of("shop", OTHER_SHOPS));
+            }
+        };
+    }
+
+    // Sessions, transactions, statements, query executions and per-region L2 hits and misses
+    @Bean
+    public MeterBinder hibernateMetrics(EntityManagerFactory entityManagerFactory) {
+        return new HibernateMetrics(entityManagerFactory.unwrap(SessionFactory.class), "entityManagerFactory",
+                List.of());
+    }
+
+    // Size, gets, puts and evictions of each Caffeine region behind the second-level cache
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager secondLevelCacheManager) {
+        return registry -> secondLevelCacheManager.getCacheNames().forEach(region ->
+                JCacheMetrics.monitor(registry, secondLevelCacheManager.getCache(region), List.of()));
+    }
+}
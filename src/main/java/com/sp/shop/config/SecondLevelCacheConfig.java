@@ -0,0 +1,68 @@
+package com.sp.shop.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import javax.cache.CacheManager;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+/**
+ * Caffeine caches behind Hibernate's second-level and query cache. Every region is created up front
+ * with its own size bound and time to live ({@code shopmate.l2-cache.<region>.*}), and Hibernate is
+ * told to fail on any region that is not listed here. Hit and miss counts are kept per region and
+ * published as JCache statistics MBeans, which MetricsConfig turns into cache.* meters.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    // Hibernate's fixed name for the table modification times that invalidate cached query results
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    // region -> property group; entity regions are named in their @Cache annotations
+    private static final Map<String, String> REGIONS = Map.of(
+            "shop", "shop",
+            "user", "user",
+            "user-roles", "user-roles",
+            "product", "product",
+            "default-query-results-region", "query-results");
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(Environment environment) {
+        Binder binder = Binder.get(environment);
+        // A provider of its own, so each application context (and each test context) gets separate caches
+        CacheManager cacheManager = new CaffeineCachingProvider().getCacheManager();
+
+        REGIONS.forEach((region, group) -> {
+            String prefix = "shopmate.l2-cache." + group;
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(
+                    binder.bind(prefix + ".maximum-size", Long.class).orElse(10_000L)));
+            configuration.setExpireAfterWrite(OptionalLong.of(
+                    binder.bind(prefix + ".expire-after-write", Duration.class).orElse(Duration.ofMinutes(10)).toNanos()));
+            configuration.setStatisticsEnabled(true);
+            cacheManager.createCache(region, configuration);
+        });
+
+        // Evicting or expiring a timestamp would let stale query results through, so this one is unbounded;
+        // it holds one entry per table
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStatisticsEnabled(true);
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheManagerCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+}
@@ -9,6 +9,7 @@ import java.util.Arrays;
 import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -25,6 +26,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.sp.shop.dto.UserResponseDTO;
 import com.sp.shop.entity.User;
+import com.sp.shop.exception.PasswordHashingBusyException;
 import com.sp.shop.security.JwtUtil;
 import com.sp.shop.service.UserService;
 
@@ -56,6 +58,8 @@ public class AuthController {
             		registeredUser.isVerified()
                 );
             return ResponseEntity.ok(responseDTO);
+        } catch (PasswordHashingBusyException e) {
+            return hashingBusy(e);
         } catch (Exception e) {
             Map<String, String> response = new HashMap<>();
             response.put("error", "Registration failed: " + e.getMessage());
@@ -80,6 +84,8 @@ public class AuthController {
             Map<String, String> response = new HashMap<>();
             response.put("token", token);
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingBusyException e) {
+            return hashingBusy(e);
         } catch (Exception e) {
             Map<String, String> response = new HashMap<>();
             response.put("error", "Login failed: " + e.getMessage());
@@ -98,6 +104,14 @@ public class AuthController {
         return ResponseEntity.badRequest().body(errors);
     }
 
+    // The password hashing pool is full: tell the client to come back instead of queueing behind the burst
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<Map<String, String>> hashingBusy(PasswordHashingBusyException e) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+    }
+
     @PostMapping("/verify")
     public ResponseEntity<?> verifyUser(@RequestBody Map<String, String> request) {
         try {
@@ -188,6 +202,8 @@ public class AuthController {
             } else {
                 return ResponseEntity.notFound().build();
             }
+        } catch (PasswordHashingBusyException e) {
+            return hashingBusy(e);
         } catch (Exception e) {
             Map<String, String> response = new HashMap<>();
             response.put("error", "Failed to update user: " + e.getMessage());
@@ -223,7 +239,12 @@ public class AuthController {
     public ResponseEntity<?> getAllUsers(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "id,asc") String[] sort) {
+            @RequestParam(defaultValue = "id,asc") String[] sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        if (cursor != null || limit != null) {
+            return getUserPage(null, cursor, limit);
+        }
         
         List<org.springframework.data.domain.Sort.Order> orders = new ArrayList<>();
         
@@ -245,7 +266,7 @@ public class AuthController {
                     org.springframework.data.domain.Sort.Direction.DESC : 
                     org.springframework.data.domain.Sort.Direction.ASC;
                 
-                orders.add(new org.springframework.data.domain.Sort.Order(sortDirection, property));
+                orders.add(new org.springframework.data.domain.Sort.Order(sortDirection, sortAttribute(property)));
             }
         }
         
@@ -259,7 +280,7 @@ public class AuthController {
             org.springframework.data.domain.PageRequest.of(page, size, 
                 org.springframework.data.domain.Sort.by(orders));
             
-        org.springframework.data.domain.Page<User> usersPage = userService.getAllUsers(pageable);
+        org.springframework.data.domain.Page<UserResponseDTO> usersPage = userService.getAllUsers(pageable);
         
         Map<String, Object> response = new HashMap<>();
         response.put("users", usersPage.getContent());
@@ -275,7 +296,12 @@ public class AuthController {
             @RequestParam String search,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(defaultValue = "id,asc") String[] sort) {
+            @RequestParam(defaultValue = "id,asc") String[] sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        if (cursor != null || limit != null) {
+            return getUserPage(search, cursor, limit);
+        }
         
         List<org.springframework.data.domain.Sort.Order> orders = new ArrayList<>();
         
@@ -297,7 +323,7 @@ public class AuthController {
                     org.springframework.data.domain.Sort.Direction.DESC : 
                     org.springframework.data.domain.Sort.Direction.ASC;
                 
-                orders.add(new org.springframework.data.domain.Sort.Order(sortDirection, property));
+                orders.add(new org.springframework.data.domain.Sort.Order(sortDirection, sortAttribute(property)));
             }
         }
         
@@ -311,7 +337,7 @@ public class AuthController {
             org.springframework.data.domain.PageRequest.of(page, size, 
                 org.springframework.data.domain.Sort.by(orders));
             
-        org.springframework.data.domain.Page<User> usersPage = userService.searchUsers(search, pageable);
+        org.springframework.data.domain.Page<UserResponseDTO> usersPage = userService.searchUsers(search, pageable);
         
         Map<String, Object> response = new HashMap<>();
         response.put("users", usersPage.getContent());
@@ -322,11 +348,27 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
     
+    // Keyset mode, chosen by passing cursor or limit: users in id order with a nextCursor and no total count
+    private ResponseEntity<?> getUserPage(String search, String cursor, Integer limit) {
+        try {
+            return ResponseEntity.ok(userService.getUserPage(search, cursor, limit != null ? limit : 50));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
     private boolean isValidSortProperty(String property) {
         // List of valid sort properties
         Set<String> validProperties = new HashSet<>(Arrays.asList(
-            "id", "username", "email", "mobile", "roles", "verified"
+            "id", "username", "email", "mobile", "verified"
         ));
         return validProperties.contains(property);
     }
+
+    // The entity field behind "verified" is isVerified
+    private static String sortAttribute(String property) {
+        return "verified".equals(property) ? "isVerified" : property;
+    }
 }
\ No newline at end of file
@@ -1,18 +1,31 @@
 package com.sp.shop.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.Principal;
-import java.util.List;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sp.shop.dto.BillRequest;
-import com.sp.shop.entity.Bill;
+import com.sp.shop.dto.BillResponse;
 import com.sp.shop.service.BillingService;
 
 import lombok.RequiredArgsConstructor;
@@ -22,18 +35,66 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class BillingController {
 
+    public static final String NDJSON = "application/x-ndjson";
+
+    // Clients may keep the response but must revalidate it with If-None-Match
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final BillingService billingService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('ROLE_SHOP_OWNER', 'ROLE_STAFF')")
-    public ResponseEntity<Bill> createBill(@RequestBody BillRequest request, Principal principal) {
-        return ResponseEntity.ok(billingService.createBill(request, principal.getName()));
+    public ResponseEntity<BillResponse> createBill(@RequestBody BillRequest request, Principal principal) {
+        return ResponseEntity.ok(BillResponse.from(billingService.createBill(request, principal.getName())));
     }
 
+    // Without paging parameters the full history is returned as before; any of them switches to keyset pages
     @GetMapping
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<Bill>> getBills(Principal principal) {
-        return ResponseEntity.ok(billingService.getAllBillsForUser(principal.getName()));
+    public ResponseEntity<?> getBills(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            Principal principal,
+            WebRequest webRequest) {
+        String etag = billingService.getBillsETag(principal.getName());
+        // One ETag covers every wire format, so the 200 and the 304 both vary by Accept
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();  // no bill was read
+        }
+        if (from == null && to == null && cursor == null && limit == null) {
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT)
+                    .body(billingService.getAllBillsForUser(principal.getName()));
+        }
+        try {
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT)
+                    .body(billingService.getBillPage(principal.getName(), from, to, cursor, limit != null ? limit : 50));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    // Newline-delimited JSON, one bill per line, written straight from a database cursor
+    @GetMapping(produces = NDJSON)
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<StreamingResponseBody> streamBills(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            Principal principal) {
+        String username = principal.getName();
+        StreamingResponseBody body = out -> billingService.streamBills(username, from, to, bill -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(bill));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
 }
@@ -0,0 +1,90 @@
+package com.sp.shop.controller;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.sp.shop.service.ExportService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final ExportService exportService;
+
+    @GetMapping("/products")
+    @PreAuthorize("hasRole('ROLE_SHOP_OWNER')")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "false") boolean gzip, Principal principal) {
+        String username = principal.getName();
+        return csv("products", gzip, out -> exportService.writeProducts(username, out));
+    }
+
+    @GetMapping("/bills")
+    @PreAuthorize("hasRole('ROLE_SHOP_OWNER')")
+    public ResponseEntity<StreamingResponseBody> exportBills(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean gzip, Principal principal) {
+        String username = principal.getName();
+        return csv("bills", gzip, out -> exportService.writeBills(username, from, to, out));
+    }
+
+    @GetMapping("/bill-items")
+    @PreAuthorize("hasRole('ROLE_SHOP_OWNER')")
+    public ResponseEntity<StreamingResponseBody> exportBillItems(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean gzip, Principal principal) {
+        String username = principal.getName();
+        return csv("bill-items", gzip, out -> exportService.writeBillItems(username, from, to, out));
+    }
+
+    // Sent as a file download; with gzip the body is a .csv.gz rather than a transfer encoding
+    private ResponseEntity<StreamingResponseBody> csv(String name, boolean gzip, CsvWriter writer) {
+        String filename = gzip ? name + ".csv.gz" : name + ".csv";
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            Writer csvOut = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+            writer.write(csvOut);
+            csvOut.flush();
+            if (target instanceof GZIPOutputStream gzipOut) {
+                gzipOut.finish();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    @FunctionalInterface
+    private interface CsvWriter {
+        void write(Writer out) throws IOException;
+    }
+}
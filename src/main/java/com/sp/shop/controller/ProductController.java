@@ -1,8 +1,16 @@
 package com.sp.shop.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -11,12 +19,18 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.sp.shop.dto.CatalogChanges;
 import com.sp.shop.dto.CreateProductRequest;
+import com.sp.shop.dto.ImportReport;
 import com.sp.shop.entity.Product;
+import com.sp.shop.service.ProductImportService;
 import com.sp.shop.service.ProductService;
 
 import lombok.RequiredArgsConstructor;
@@ -26,7 +40,11 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class ProductController {
 
+    // Clients may keep the response but must revalidate it with If-None-Match
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final ProductService productService;
+    private final ProductImportService productImportService;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('ROLE_SHOP_OWNER', 'ROLE_STAFF')")
@@ -39,16 +57,44 @@ public class ProductController {
 
     @GetMapping
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<Product>> getProducts(Principal principal) {
+    public ResponseEntity<List<Product>> getProducts(Principal principal, WebRequest webRequest) {
+        String etag = productService.getCatalogETag(principal.getName());
+        if (webRequest.checkNotModified(etag)) {
+            return notModified();  // nothing was loaded or serialized
+        }
         List<Product> products = productService.getProductsForUser(principal.getName());
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).body(products);
+    }
+
+    // Delta sync for registers: omit since for a full snapshot, then pass back the returned version
+    @GetMapping("/changes")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<CatalogChanges> getChanges(@RequestParam(required = false) Long since, Principal principal) {
+        return ResponseEntity.ok(productService.getChangesSince(since, principal.getName()));
+    }
+
+    // Server-Sent Events: a "stock" event with the current quantity and price of products that changed
+    @GetMapping(value = "/updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<SseEmitter> streamStockUpdates(Principal principal) {
+        try {
+            return ResponseEntity.ok(productService.subscribeToStockUpdates(principal.getName()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
     }
 
     @GetMapping("/barcode/{barcode}")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Product> getProductByBarcode(@PathVariable String barcode) {
-        return productService.getByBarcode(barcode)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<Product> getProductByBarcode(@PathVariable String barcode, Principal principal,
+            WebRequest webRequest) {
+        String etag = productService.getCatalogETag(principal.getName());
+        if (webRequest.checkNotModified(etag)) {
+            return notModified();
+        }
+        return productService.getByBarcode(barcode, principal.getName())
+                .map(product -> ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT)
+                        .body(product))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -71,7 +117,37 @@ public class ProductController {
 
     @GetMapping("/search")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam("q") String query) {
-        return ResponseEntity.ok(productService.searchProducts(query));
+    public ResponseEntity<List<Product>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            Principal principal) {
+        int pageSize = Math.max(1, Math.min(size, 100));
+        return ResponseEntity.ok(productService.searchProducts(query, principal.getName(), Math.max(page, 0), pageSize));
+    }
+
+    // Bulk upsert by barcode from a CSV (with header row) or NDJSON body, streamed without buffering
+    @PostMapping(value = "/import", consumes = { "text/csv", BillingController.NDJSON })
+    @PreAuthorize("hasRole('ROLE_SHOP_OWNER')")
+    public ResponseEntity<?> importProducts(
+            @RequestHeader("Content-Type") String contentType,
+            InputStream body,
+            Principal principal) throws IOException {
+        ProductImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? ProductImportService.Format.CSV
+                : ProductImportService.Format.NDJSON;
+        try {
+            ImportReport report = productImportService.importProducts(body, format, principal.getName());
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Import failed: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    // One ETag covers JSON, Smile and CBOR, so shared caches must key on Accept as well; the 304 says so too
+    private static <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT).build();
     }
 }
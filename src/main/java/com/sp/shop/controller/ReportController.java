@@ -0,0 +1,70 @@
+package com.sp.shop.controller;
+
+import java.security.Principal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.sp.shop.service.ReportService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/reports")
+@RequiredArgsConstructor
+public class ReportController {
+
+    private final ReportService reportService;
+
+    // Revenue, units and bill count per day; the range defaults to the last 30 days
+    @GetMapping("/daily")
+    @PreAuthorize("hasRole('ROLE_SHOP_OWNER')")
+    public ResponseEntity<?> getDailySales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            Principal principal) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        return respond(() -> reportService.getDailySales(principal.getName(), start, end));
+    }
+
+    @GetMapping("/top-products")
+    @PreAuthorize("hasRole('ROLE_SHOP_OWNER')")
+    public ResponseEntity<?> getTopProducts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "units") String by,
+            Principal principal) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        if (!by.equals("units") && !by.equals("revenue")) {
+            return badRequest("by must be 'units' or 'revenue'");
+        }
+        return respond(() -> reportService.getTopProducts(principal.getName(), start, end, limit,
+                by.equals("revenue")));
+    }
+
+    private static ResponseEntity<?> respond(Supplier<?> report) {
+        try {
+            return ResponseEntity.ok(report.get());
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<?> badRequest(String message) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", message);
+        return ResponseEntity.badRequest().body(response);
+    }
+}
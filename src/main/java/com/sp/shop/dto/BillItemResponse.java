@@ -0,0 +1,28 @@
+package com.sp.shop.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.sp.shop.entity.BillItem;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillItemResponse {
+    @JsonIgnore
+    private Long billId;  // only used to group items under their bill
+    private Long id;
+    private String productName;
+    private String barcode;
+    private int quantity;
+    private double pricePerUnit;
+    private double totalPrice;
+
+    public static BillItemResponse from(BillItem item) {
+        return new BillItemResponse(item.getBill() != null ? item.getBill().getId() : null, item.getId(),
+                item.getProductName(), item.getBarcode(), item.getQuantity(), item.getPricePerUnit(),
+                item.getTotalPrice());
+    }
+}
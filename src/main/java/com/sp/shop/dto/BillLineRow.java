@@ -0,0 +1,26 @@
+package com.sp.shop.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One row of a bill left-joined to its items. Item columns are null for a bill without items.
+ * Streaming these rows lets a single forward-only query produce whole bills.
+ */
+@Data
+@AllArgsConstructor
+public class BillLineRow {
+    private Long billId;
+    private String customerName;
+    private double totalAmount;
+    private LocalDateTime createdAt;
+    private Long shopId;
+    private Long itemId;
+    private String productName;
+    private String barcode;
+    private Integer quantity;
+    private Double pricePerUnit;
+    private Double totalPrice;
+}
@@ -0,0 +1,37 @@
+package com.sp.shop.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sp.shop.entity.Bill;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class BillResponse {
+    private Long id;
+    private String customerName;
+    private double totalAmount;
+    private LocalDateTime createdAt;
+    private Long shopId;
+    private List<BillItemResponse> items = new ArrayList<>();
+
+    // Used by JPQL constructor expressions; items are attached afterwards
+    public BillResponse(Long id, String customerName, double totalAmount, LocalDateTime createdAt, Long shopId) {
+        this.id = id;
+        this.customerName = customerName;
+        this.totalAmount = totalAmount;
+        this.createdAt = createdAt;
+        this.shopId = shopId;
+    }
+
+    public static BillResponse from(Bill bill) {
+        BillResponse response = new BillResponse(bill.getId(), bill.getCustomerName(), bill.getTotalAmount(),
+                bill.getCreatedAt(), bill.getShop() != null ? bill.getShop().getId() : null);
+        bill.getItems().forEach(item -> response.getItems().add(BillItemResponse.from(item)));
+        return response;
+    }
+}
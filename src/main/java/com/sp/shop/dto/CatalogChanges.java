@@ -0,0 +1,17 @@
+package com.sp.shop.dto;
+
+import java.util.List;
+
+import com.sp.shop.entity.Product;
+import com.sp.shop.entity.ProductTombstone;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CatalogChanges {
+    private long version;  // pass as since on the next call
+    private List<Product> products;  // inserted or updated after since
+    private List<ProductTombstone> deleted;
+}
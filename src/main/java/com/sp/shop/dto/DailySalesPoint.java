@@ -0,0 +1,15 @@
+package com.sp.shop.dto;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class DailySalesPoint {
+    private LocalDate date;
+    private long billCount;
+    private long unitsSold;
+    private double revenue;
+}
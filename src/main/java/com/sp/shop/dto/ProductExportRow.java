@@ -0,0 +1,20 @@
+package com.sp.shop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Flat product columns for CSV export; a projection keeps exported rows out of the persistence context.
+ */
+@Data
+@AllArgsConstructor
+public class ProductExportRow {
+    private Long id;
+    private String name;
+    private String barcode;
+    private String brand;
+    private String category;
+    private double price;
+    private int quantity;
+    private String imageUrl;
+}
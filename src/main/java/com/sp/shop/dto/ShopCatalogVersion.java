@@ -0,0 +1,11 @@
+package com.sp.shop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ShopCatalogVersion {
+    private Long shopId;
+    private long catalogVersion;
+}
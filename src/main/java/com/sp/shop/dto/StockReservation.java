@@ -0,0 +1,18 @@
+package com.sp.shop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A product as read back by ProductRepository.reserveStock. When {@code reserved} is true the row was
+ * decremented and stays locked until commit, so its name and price are current.
+ */
+@Data
+@AllArgsConstructor
+public class StockReservation {
+    private Long productId;
+    private String barcode;
+    private String productName;
+    private double price;
+    private boolean reserved;
+}
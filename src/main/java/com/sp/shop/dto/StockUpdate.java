@@ -0,0 +1,17 @@
+package com.sp.shop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Current stock and price of one product, as pushed to connected registers.
+ */
+@Data
+@AllArgsConstructor
+public class StockUpdate {
+    private Long productId;
+    private String barcode;
+    private int quantity;
+    private double price;
+    private long catalogVersion;
+}
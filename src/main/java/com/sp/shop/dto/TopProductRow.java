@@ -0,0 +1,13 @@
+package com.sp.shop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TopProductRow {
+    private String barcode;
+    private String productName;
+    private long unitsSold;
+    private double revenue;
+}
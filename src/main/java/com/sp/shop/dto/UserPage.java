@@ -0,0 +1,13 @@
+package com.sp.shop.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class UserPage {
+    private List<UserResponseDTO> users;
+    private String nextCursor;  // null when there are no more users
+}
@@ -12,6 +12,10 @@ public class UserResponseDTO {
 		this.role = role;
 		this.verified = verified;
 	}
+	// For JPQL projections; the role is filled in afterwards from one query for the whole page
+	public UserResponseDTO(Long id, String username, String email, String mobile, boolean verified) {
+		this(id, username, email, mobile, null, verified);
+	}
 	public void setId(Long id) {
 		this.id = id;
 	}
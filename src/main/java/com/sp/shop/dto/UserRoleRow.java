@@ -0,0 +1,13 @@
+package com.sp.shop.dto;
+
+import com.sp.shop.entity.Role;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class UserRoleRow {
+    private Long userId;
+    private Role role;
+}
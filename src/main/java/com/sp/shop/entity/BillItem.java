@@ -1,11 +1,14 @@
 package com.sp.shop.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -17,7 +20,8 @@ import lombok.NoArgsConstructor;
 public class BillItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bill_item_seq")
+    @SequenceGenerator(name = "bill_item_seq", sequenceName = "bill_item_seq", allocationSize = 50)  // pooled ids let inserts batch
     private Long id;
 
     private String productName;
@@ -30,6 +34,7 @@ public class BillItem {
 
     private double totalPrice;
 
+    @JsonIgnore  // back-reference; serializing it would recurse into the bill forever
     @ManyToOne
     @JoinColumn(name = "bill_id")
     private Bill bill;
@@ -0,0 +1,47 @@
+package com.sp.shop.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Units and revenue for one product (by barcode) in one shop on one day, maintained alongside
+ * {@link DailySales}.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(DailyProductSales.Key.class)
+public class DailyProductSales {
+
+    @Id
+    private Long shopId;
+
+    @Id
+    private LocalDate salesDate;
+
+    @Id
+    private String barcode;
+
+    private String productName;
+
+    private long unitsSold;
+
+    private double revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long shopId;
+        private LocalDate salesDate;
+        private String barcode;
+    }
+}
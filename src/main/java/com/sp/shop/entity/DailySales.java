@@ -0,0 +1,43 @@
+package com.sp.shop.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A shop's sales totals for one day. Rows are incremented by checkout in the same transaction as
+ * the bill, so reports read one row per day instead of aggregating bill items.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@IdClass(DailySales.Key.class)
+public class DailySales {
+
+    @Id
+    private Long shopId;
+
+    @Id
+    private LocalDate salesDate;
+
+    private long billCount;
+
+    private long unitsSold;
+
+    private double revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long shopId;
+        private LocalDate salesDate;
+    }
+}
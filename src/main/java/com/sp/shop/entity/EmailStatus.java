@@ -0,0 +1,8 @@
+package com.sp.shop.entity;
+
+public enum EmailStatus {
+    PENDING,
+    IN_FLIGHT,  // claimed by a dispatcher until next_attempt_at
+    SENT,
+    FAILED
+}
@@ -1,11 +1,23 @@
 package com.sp.shop.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,10 +26,16 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(
+        uniqueConstraints = @UniqueConstraint(name = "ux_product_shop_barcode", columnNames = { "shop_id", "barcode" }),
+        indexes = @Index(name = "idx_product_shop_catalog_version", columnList = "shop_id, catalog_version"))
+// Stock is also decremented with plain JDBC at checkout; ProductRepositoryImpl evicts those rows itself
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product")
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)  // pooled ids let inserts batch
     private Long id;
 
     private String name;
@@ -34,7 +52,18 @@ public class Product {
 
     private String imageUrl;
 
+    @JsonIgnore  // every product of a shop would otherwise repeat the shop and its owner
     @ManyToOne
     @JoinColumn(name = "shop_id")
     private Shop shop;
+
+    // Shop catalog version of the last change to this product, used for delta sync
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long catalogVersion;
+
+    @JsonProperty("shopId")
+    public Long getShopId() {
+        return shop != null ? shop.getId() : null;
+    }
 }
\ No newline at end of file
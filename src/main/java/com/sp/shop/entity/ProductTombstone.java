@@ -0,0 +1,29 @@
+package com.sp.shop.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Left behind when a product is deleted so delta sync clients learn about the removal.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_tombstone_shop_catalog_version", columnList = "shop_id, catalog_version"))
+public class ProductTombstone {
+
+    @Id
+    private Long productId;
+
+    private Long shopId;
+
+    private String barcode;
+
+    private long catalogVersion;
+}
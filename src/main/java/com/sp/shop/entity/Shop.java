@@ -1,5 +1,10 @@
 package com.sp.shop.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
@@ -14,6 +19,7 @@ import lombok.AllArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "shop")
 public class Shop {
 
     @Id
@@ -29,4 +35,10 @@ public class Shop {
     @OneToOne
     @JoinColumn(name = "owner_username", referencedColumnName = "username")
     private User owner;
-}
\ No newline at end of file
+
+    // Bumped by every catalog write and checkout with a single UPDATE in ShopRepositoryImpl, behind
+    // Hibernate's back; a loaded or cached Shop keeps its old value, so read it with findCatalogVersion
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long catalogVersion;
+}
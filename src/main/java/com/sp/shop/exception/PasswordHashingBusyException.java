@@ -0,0 +1,12 @@
+package com.sp.shop.exception;
+
+/**
+ * Thrown when the password hashing pool and its queue are full. Controllers answer it with 503 and
+ * Retry-After, so a burst of logins is shed instead of tying up request threads.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException() {
+        super("Too many sign-ins in progress, please retry shortly");
+    }
+}
@@ -1,5 +1,6 @@
 package com.sp.shop.filter;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureException;
@@ -9,70 +10,118 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.sp.shop.metrics.StageTimer;
 import com.sp.shop.security.JwtUtil;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
+    // Request attribute holding the shop id claim of the verified token, if it carried one
+    public static final String SHOP_ID_ATTRIBUTE = JwtRequestFilter.class.getName() + ".shopId";
+
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
     private UserDetailsService userDetailsService;
 
+    // Bearer requests only: verify and load-user stages in shopmate.auth.jwt.stage, outcome in shopmate.auth.jwt
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // When enabled every request re-reads the user, so deleted accounts lose access before their token expires
+    @Value("${shopmate.jwt.revocation-check:false}")
+    private boolean revocationCheck;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        Claims claims = null;
+        StageTimer timer = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+            timer = StageTimer.start(meterRegistry, "shopmate.auth.jwt");
+            String jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
+                claims = jwtUtil.parseClaims(jwt);
             } catch (ExpiredJwtException e) {
+                timer.finish("expired");
                 logger.error("JWT Token has expired", e);
                 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Token Expired");
                 return;
             } catch (SignatureException | MalformedJwtException e) {
+                timer.finish("invalid");
                 logger.error("JWT Token is invalid", e);
                 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid Token");
                 return;
             } catch (Exception e) {
+                timer.finish("invalid");
                 logger.error("JWT Token error", e);
                 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid Token");
                 return;
             }
+            timer.shop(claims != null ? jwtUtil.extractShopId(claims) : null).stage("verify");
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        if (claims != null && claims.getSubject() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String username = claims.getSubject();
+            List<String> roles = jwtUtil.extractRoles(claims);
 
-            if (jwtUtil.validateToken(jwt, userDetails.getUsername())) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+            UserDetails userDetails;
+            if (roles == null || revocationCheck) {
+                // Tokens issued before roles were embedded, or revocation checks enabled: ask the database
+                try {
+                    userDetails = userDetailsService.loadUserByUsername(username);
+                } catch (UsernameNotFoundException e) {
+                    timer.finish("unknown-user");
+                    logger.error("JWT Token validation failed", e);
+                    response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid or Expired Token");
+                    return;
+                }
+                timer.stage("load-user");
             } else {
-                logger.error("JWT Token validation failed");
-                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid or Expired Token");
-                return;
+                userDetails = User.withUsername(username)
+                        .password("")
+                        .authorities(roles.stream().map(SimpleGrantedAuthority::new).toList())
+                        .build();
             }
+
+            Long shopId = jwtUtil.extractShopId(claims);
+            if (shopId != null) {
+                request.setAttribute(SHOP_ID_ATTRIBUTE, shopId);
+            }
+
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities());
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+        }
+
+        if (timer != null) {
+            timer.finish("authenticated");
         }
 
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
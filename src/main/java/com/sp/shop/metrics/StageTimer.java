@@ -0,0 +1,120 @@
+package com.sp.shop.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times the consecutive stages of one operation. Each stage is recorded in {@code <name>.stage} tagged
+ * with the stage and the shop, and the whole operation in {@code <name>} tagged with the shop and its
+ * outcome. The shop is often only known after the first stage, so nothing is recorded until
+ * {@link #finish}.
+ * <p>
+ * Histogram buckets would multiply by the number of shops, so the per-shop meters only keep count, total
+ * and max. Percentiles come from the {@code <name>.all} and {@code <name>.stage.all} aggregates, which
+ * drop the shop tag.
+ */
+public final class StageTimer {
+
+    public static final String NO_SHOP = "none";
+    public static final String AGGREGATE = ".all";
+
+    private record Stage(String name, long nanos) {
+    }
+
+    private final MeterRegistry registry;
+    private final String name;
+    private final long started;
+    private final List<Stage> stages = new ArrayList<>(4);
+    private long stageStarted;
+    private String shop = NO_SHOP;
+    private boolean finished;
+
+    private StageTimer(MeterRegistry registry, String name) {
+        this.registry = registry;
+        this.name = name;
+        this.started = registry.config().clock().monotonicTime();
+        this.stageStarted = started;
+    }
+
+    public static StageTimer start(MeterRegistry registry, String name) {
+        return new StageTimer(registry, name);
+    }
+
+    public StageTimer shop(Long shopId) {
+        shop = shopId != null ? shopId.toString() : NO_SHOP;
+        return this;
+    }
+
+    public String shop() {
+        return shop;
+    }
+
+    // Ends the running stage under the given name and starts the next one
+    public void stage(String stage) {
+        long now = registry.config().clock().monotonicTime();
+        stages.add(new Stage(stage, now - stageStarted));
+        stageStarted = now;
+    }
+
+    /**
+     * Ends the last stage when the current transaction completes, so it includes the flush and commit,
+     * and finishes with the given outcome, or "rolled-back". Without a transaction both happen now.
+     */
+    public void finishAfterCompletion(String stage, String outcome) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            stage(stage);
+            finish(outcome);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                stage(stage);
+                finish(status == STATUS_COMMITTED ? outcome : "rolled-back");
+            }
+        });
+    }
+
+    // Records an amount in the per-shop {@code meter} and in its {@code <meter>.all} aggregate
+    public void summary(String meter, double amount) {
+        DistributionSummary.builder(meter)
+                .tag("shop", shop)
+                .register(registry)
+                .record(amount);
+        DistributionSummary.builder(meter + AGGREGATE)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(amount);
+    }
+
+    public void finish(String outcome) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        for (Stage stage : stages) {
+            record(name + ".stage", stage.nanos(), "stage", stage.name());
+        }
+        record(name, registry.config().clock().monotonicTime() - started, "outcome", outcome);
+    }
+
+    private void record(String meter, long nanos, String key, String value) {
+        Timer.builder(meter)
+                .tags(key, value, "shop", shop)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        Timer.builder(meter + AGGREGATE)
+                .tag(key, value)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
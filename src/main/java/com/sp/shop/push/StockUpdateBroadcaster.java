@@ -0,0 +1,274 @@
+package com.sp.shop.push;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sp.shop.dto.ShopCatalogVersion;
+import com.sp.shop.dto.StockUpdate;
+import com.sp.shop.repository.ProductRepository;
+import com.sp.shop.repository.ShopRepository;
+
+/**
+ * Pushes stock and price changes to connected registers over Server-Sent Events, one channel per shop.
+ * Every write to a product stamps it with the shop's next catalog version, on whichever node it runs. A
+ * scheduled flush reads the catalog versions of the shops subscribed on this node in one query, and for
+ * each shop that moved on reads the products changed since the version it last pushed, with the same
+ * delta query as the catalog sync. They go out as a single event, so a burst of sales of the same
+ * product reaches clients as one update. Idle connections hold no thread.
+ * <p>
+ * Writing to a client blocks until its socket takes the bytes, so the scheduled jobs only queue events;
+ * a small pool of sender threads writes them, one subscriber at a time. A subscriber whose queue fills
+ * up, or whose write has been stuck longer than the send timeout, is dropped and has to reconnect.
+ */
+@Component
+public class StockUpdateBroadcaster implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(StockUpdateBroadcaster.class);
+
+    // Upper bound on shop ids per IN list when reading catalog versions
+    private static final int QUERY_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final ShopRepository shopRepository;
+    private final ObjectMapper objectMapper;
+    private final long emitterTimeoutMillis;
+    private final int maxConnections;
+    private final int maxQueuedEvents;
+    private final long sendTimeoutNanos;
+    private final ThreadPoolExecutor senders;
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    // Catalog version each subscribed shop has been pushed up to
+    private final Map<Long, Long> pushedVersions = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    public StockUpdateBroadcaster(
+            ProductRepository productRepository,
+            ShopRepository shopRepository,
+            ObjectMapper objectMapper,
+            @Value("${shopmate.push.emitter-timeout:30m}") Duration emitterTimeout,
+            @Value("${shopmate.push.max-connections:5000}") int maxConnections,
+            @Value("${shopmate.push.sender-threads:4}") int senderThreads,
+            @Value("${shopmate.push.max-queued-events:16}") int maxQueuedEvents,
+            @Value("${shopmate.push.send-timeout:10s}") Duration sendTimeout) {
+        this.productRepository = productRepository;
+        this.shopRepository = shopRepository;
+        this.objectMapper = objectMapper;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.maxConnections = maxConnections;
+        this.maxQueuedEvents = maxQueuedEvents;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        AtomicInteger counter = new AtomicInteger();
+        // A subscriber has at most one drain task queued, so the queue never holds more than the connections
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxConnections), runnable -> {
+                    Thread thread = new Thread(runnable, "sse-sender-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Opens a stock update channel for a shop. Clients reconnect when it times out.
+     *
+     * @throws IllegalStateException when this node already serves max-connections subscribers
+     */
+    public SseEmitter subscribe(Long shopId) {
+        // Read before joining, so the first flush that sees the shop has a version to start from
+        long version = shopRepository.findCatalogVersion(shopId);
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            throw new IllegalStateException("Too many stock update subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(shopId, emitter);
+        // Adding and removing inside compute keeps an emptied set from being dropped while a subscriber joins it
+        subscribers.compute(shopId, (id, shopSubscribers) -> {
+            Set<Subscriber> set = shopSubscribers != null ? shopSubscribers : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            pushedVersions.putIfAbsent(shopId, version);
+            return set;
+        });
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${shopmate.push.flush-interval:250ms}")
+    public void flush() {
+        List<Long> shopIds = new ArrayList<>(subscribers.keySet());
+        for (int i = 0; i < shopIds.size(); i += QUERY_BATCH_SIZE) {
+            List<Long> batch = shopIds.subList(i, Math.min(i + QUERY_BATCH_SIZE, shopIds.size()));
+            for (ShopCatalogVersion current : shopRepository.findCatalogVersions(batch)) {
+                flush(current.getShopId(), current.getCatalogVersion());
+            }
+        }
+    }
+
+    private void flush(Long shopId, long version) {
+        Long pushed = pushedVersions.get(shopId);
+        if (pushed == null || version <= pushed) {
+            return;
+        }
+        // Versions commit in order (the shop row stays locked until commit), so every product stamped up to
+        // the version just read is already visible
+        List<StockUpdate> updates = productRepository.findStockUpdatesSince(shopId, pushed, version);
+        Set<Subscriber> shopSubscribers = subscribers.get(shopId);
+        if (!pushedVersions.replace(shopId, pushed, version) || shopSubscribers == null || updates.isEmpty()) {
+            return;  // the shop's last subscriber left, or a deletion moved the version on
+        }
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(updates);  // serialized once for every subscriber
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize stock updates for shop {}", shopId, e);
+            return;
+        }
+        for (Subscriber subscriber : shopSubscribers) {
+            enqueue(subscriber, SseEmitter.event().name("stock").data(json, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    // Lets proxies keep idle connections open, surfaces clients that went away and drops stuck ones
+    @Scheduled(fixedDelayString = "${shopmate.push.heartbeat-interval:30s}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        for (Set<Subscriber> shopSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : shopSubscribers) {
+                long since = subscriber.sendingSince;
+                if (since != 0 && now - since > sendTimeoutNanos) {
+                    drop(subscriber, "send timed out");
+                } else {
+                    enqueue(subscriber, SseEmitter.event().comment("keepalive"));
+                }
+            }
+        }
+    }
+
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    @Override
+    public void destroy() {
+        senders.shutdownNow();
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.queued.incrementAndGet() > maxQueuedEvents) {
+            drop(subscriber, "too far behind");
+            return;
+        }
+        subscriber.events.add(event);
+        schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;  // the running drain picks the event up
+        }
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.draining.set(false);
+            unsubscribe(subscriber);  // shutting down
+        }
+    }
+
+    // Runs on a sender thread; the only place a subscriber's emitter is written to or completed
+    private void drain(Subscriber subscriber) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while (!subscriber.dropped && (event = subscriber.events.poll()) != null) {
+                subscriber.queued.decrementAndGet();
+                subscriber.sendingSince = System.nanoTime();
+                try {
+                    subscriber.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // The client is gone or the emitter already completed; the container finishes the request
+                    unsubscribe(subscriber);
+                    return;
+                } finally {
+                    subscriber.sendingSince = 0;
+                }
+            }
+            if (subscriber.dropped) {
+                subscriber.emitter.complete();
+            }
+        } finally {
+            subscriber.draining.set(false);
+            if (!subscriber.events.isEmpty() && !subscriber.dropped) {
+                schedule(subscriber);  // queued after the last poll
+            }
+        }
+    }
+
+    // The connection slot is freed now; the emitter is completed by the subscriber's next or current drain
+    private void drop(Subscriber subscriber, String reason) {
+        if (subscriber.dropped) {
+            return;
+        }
+        subscriber.dropped = true;
+        unsubscribe(subscriber);
+        log.debug("Dropped a stock update subscriber of shop {}: {}", subscriber.shopId, reason);
+        schedule(subscriber);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        boolean[] removed = new boolean[1];
+        subscribers.computeIfPresent(subscriber.shopId, (id, shopSubscribers) -> {
+            removed[0] = shopSubscribers.remove(subscriber);
+            if (shopSubscribers.isEmpty()) {
+                pushedVersions.remove(id);
+                return null;
+            }
+            return shopSubscribers;
+        });
+        if (removed[0]) {
+            connections.decrementAndGet();
+        }
+    }
+
+    private static final class Subscriber {
+
+        final Long shopId;
+        final SseEmitter emitter;
+        final Queue<SseEmitter.SseEventBuilder> events = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+        // System.nanoTime() when the write in progress started, 0 while idle
+        volatile long sendingSince;
+        volatile boolean dropped;
+
+        Subscriber(Long shopId, SseEmitter emitter) {
+            this.shopId = shopId;
+            this.emitter = emitter;
+        }
+    }
+}
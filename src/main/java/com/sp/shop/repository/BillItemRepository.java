@@ -1,12 +1,21 @@
 package com.sp.shop.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.sp.shop.dto.BillItemResponse;
 import com.sp.shop.entity.Bill;
 import com.sp.shop.entity.BillItem;
 
 public interface BillItemRepository extends JpaRepository<BillItem, Long> {
     List<BillItem> findByBill(Bill bill);
+
+    // Items for a whole page of bills in one IN query
+    @Query("select new com.sp.shop.dto.BillItemResponse(i.bill.id, i.id, i.productName, i.barcode, i.quantity, "
+            + "i.pricePerUnit, i.totalPrice) from BillItem i where i.bill.id in :billIds order by i.bill.id, i.id")
+    List<BillItemResponse> findResponsesByBillIdIn(@Param("billIds") Collection<Long> billIds);
 }
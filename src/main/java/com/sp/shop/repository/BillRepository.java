@@ -1,12 +1,69 @@
 package com.sp.shop.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.sp.shop.dto.BillLineRow;
+import com.sp.shop.dto.BillResponse;
 import com.sp.shop.entity.Bill;
 import com.sp.shop.entity.Shop;
 
+import jakarta.persistence.QueryHint;
+
 public interface BillRepository extends JpaRepository<Bill, Long> {
     List<Bill> findByShop(Shop shop);
-}
\ No newline at end of file
+
+    // Bill headers only, no entity graph; items are attached with one BillItemRepository query
+    @Query("select new com.sp.shop.dto.BillResponse(b.id, b.customerName, b.totalAmount, b.createdAt, b.shop.id) "
+            + "from Bill b where b.shop = :shop order by b.createdAt desc, b.id desc")
+    List<BillResponse> findResponsesByShop(@Param("shop") Shop shop);
+
+    // First page of a keyset walk, newest bills first
+    @Query("select new com.sp.shop.dto.BillResponse(b.id, b.customerName, b.totalAmount, b.createdAt, b.shop.id) "
+            + "from Bill b where b.shop = :shop and b.createdAt >= :from and b.createdAt < :to "
+            + "order by b.createdAt desc, b.id desc")
+    List<BillResponse> findPage(@Param("shop") Shop shop, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to, Pageable pageable);
+
+    // Following pages: everything strictly older than the (createdAt, id) of the last bill already returned
+    @Query("select new com.sp.shop.dto.BillResponse(b.id, b.customerName, b.totalAmount, b.createdAt, b.shop.id) "
+            + "from Bill b where b.shop = :shop and b.createdAt >= :from and b.createdAt < :to "
+            + "and (b.createdAt < :cursorCreatedAt or (b.createdAt = :cursorCreatedAt and b.id < :cursorId)) "
+            + "order by b.createdAt desc, b.id desc")
+    List<BillResponse> findPageAfter(@Param("shop") Shop shop, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to, @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+            @Param("cursorId") Long cursorId, Pageable pageable);
+
+    // Bill headers only, streamed for export
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.sp.shop.dto.BillResponse(b.id, b.customerName, b.totalAmount, b.createdAt, b.shop.id) "
+            + "from Bill b where b.shop = :shop and b.createdAt >= :from and b.createdAt < :to "
+            + "order by b.createdAt desc, b.id desc")
+    Stream<BillResponse> streamResponsesByShop(@Param("shop") Shop shop, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    // Bills joined to their items as flat rows, ordered so each bill's rows are contiguous.
+    // With useCursorFetch on the JDBC URL a positive fetch size reads through a server-side cursor
+    // in chunks instead of buffering the whole result.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.sp.shop.dto.BillLineRow(b.id, b.customerName, b.totalAmount, b.createdAt, b.shop.id, "
+            + "i.id, i.productName, i.barcode, i.quantity, i.pricePerUnit, i.totalPrice) "
+            + "from Bill b left join b.items i where b.shop = :shop and b.createdAt >= :from and b.createdAt < :to "
+            + "order by b.createdAt desc, b.id desc, i.id")
+    Stream<BillLineRow> streamLinesByShop(@Param("shop") Shop shop, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,27 @@
+package com.sp.shop.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.sp.shop.dto.TopProductRow;
+import com.sp.shop.entity.DailyProductSales;
+
+public interface DailyProductSalesRepository extends JpaRepository<DailyProductSales, DailyProductSales.Key> {
+
+    @Query("select new com.sp.shop.dto.TopProductRow(p.barcode, max(p.productName), sum(p.unitsSold), sum(p.revenue)) "
+            + "from DailyProductSales p where p.shopId = :shopId and p.salesDate between :from and :to "
+            + "group by p.barcode order by sum(p.unitsSold) desc, p.barcode")
+    List<TopProductRow> findTopByUnits(@Param("shopId") Long shopId, @Param("from") LocalDate from,
+            @Param("to") LocalDate to, Pageable pageable);
+
+    @Query("select new com.sp.shop.dto.TopProductRow(p.barcode, max(p.productName), sum(p.unitsSold), sum(p.revenue)) "
+            + "from DailyProductSales p where p.shopId = :shopId and p.salesDate between :from and :to "
+            + "group by p.barcode order by sum(p.revenue) desc, p.barcode")
+    List<TopProductRow> findTopByRevenue(@Param("shopId") Long shopId, @Param("from") LocalDate from,
+            @Param("to") LocalDate to, Pageable pageable);
+}
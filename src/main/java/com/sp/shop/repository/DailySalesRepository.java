@@ -0,0 +1,12 @@
+package com.sp.shop.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.sp.shop.entity.DailySales;
+
+public interface DailySalesRepository extends JpaRepository<DailySales, DailySales.Key>, DailySalesRepositoryCustom {
+    List<DailySales> findByShopIdAndSalesDateBetweenOrderBySalesDate(Long shopId, LocalDate from, LocalDate to);
+}
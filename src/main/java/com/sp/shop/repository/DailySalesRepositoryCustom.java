@@ -0,0 +1,15 @@
+package com.sp.shop.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+import com.sp.shop.entity.BillItem;
+
+public interface DailySalesRepositoryCustom {
+
+    /**
+     * Adds one bill to the shop's day and product rollups with {@code INSERT ... ON DUPLICATE KEY UPDATE},
+     * one statement for the day row and one JDBC batch for the product rows.
+     */
+    void addBill(Long shopId, LocalDate day, double revenue, Collection<BillItem> items);
+}
@@ -0,0 +1,65 @@
+package com.sp.shop.repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.sp.shop.entity.BillItem;
+
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class DailySalesRepositoryImpl implements DailySalesRepositoryCustom {
+
+    private static final String ADD_DAY_SQL =
+            "INSERT INTO daily_sales (shop_id, sales_date, bill_count, units_sold, revenue) VALUES (?, ?, 1, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE bill_count = bill_count + 1, units_sold = units_sold + ?, "
+                    + "revenue = revenue + ?";
+
+    private static final String ADD_PRODUCT_SQL =
+            "INSERT INTO daily_product_sales (shop_id, sales_date, barcode, product_name, units_sold, revenue) "
+                    + "VALUES (?, ?, ?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE product_name = ?, units_sold = units_sold + ?, revenue = revenue + ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void addBill(Long shopId, LocalDate day, double revenue, Collection<BillItem> items) {
+        // Merge repeated barcodes and upsert in barcode order so concurrent checkouts lock rows consistently
+        Map<String, BillItem> byBarcode = new TreeMap<>();
+        long units = 0;
+        for (BillItem item : items) {
+            units += item.getQuantity();
+            byBarcode.merge(item.getBarcode(), copy(item), (total, line) -> {
+                total.setQuantity(total.getQuantity() + line.getQuantity());
+                total.setTotalPrice(total.getTotalPrice() + line.getTotalPrice());
+                return total;
+            });
+        }
+
+        List<Object[]> args = new ArrayList<>(byBarcode.size());
+        for (BillItem line : byBarcode.values()) {
+            args.add(new Object[] { shopId, day, line.getBarcode(), line.getProductName(), line.getQuantity(),
+                    line.getTotalPrice(), line.getProductName(), line.getQuantity(), line.getTotalPrice() });
+        }
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_PRODUCT_SQL, args);
+        }
+        // The day row is the most contended, so it is taken last and held for the shortest time
+        jdbcTemplate.update(ADD_DAY_SQL, shopId, day, units, revenue, units, revenue);
+    }
+
+    private static BillItem copy(BillItem item) {
+        BillItem line = new BillItem();
+        line.setBarcode(item.getBarcode());
+        line.setProductName(item.getProductName());
+        line.setQuantity(item.getQuantity());
+        line.setTotalPrice(item.getTotalPrice());
+        return line;
+    }
+}
@@ -0,0 +1,25 @@
+package com.sp.shop.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import com.sp.shop.entity.EmailOutbox;
+import com.sp.shop.entity.EmailStatus;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // Locks due rows with FOR UPDATE SKIP LOCKED so several nodes can claim from the outbox side by side
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<EmailOutbox> findByStatusInAndNextAttemptAtLessThanEqualOrderByIdAsc(
+            Collection<EmailStatus> statuses, LocalDateTime now, Pageable pageable);
+}
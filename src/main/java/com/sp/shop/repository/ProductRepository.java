@@ -1,14 +1,43 @@
 package com.sp.shop.repository;
 
+import com.sp.shop.dto.ProductExportRow;
+import com.sp.shop.dto.StockUpdate;
 import com.sp.shop.entity.Product;
 import com.sp.shop.entity.Shop;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    Optional<Product> findByBarcode(String barcode);
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+    Optional<Product> findByShopAndBarcode(Shop shop, String barcode);
     List<Product> findByShop(Shop shop);
-    List<Product> findByNameContainingIgnoreCaseOrBrandContainingIgnoreCase(String name, String brand);
-}
\ No newline at end of file
+    List<Product> findByShopAndBarcodeIn(Shop shop, Collection<String> barcodes);  // Resolve a whole cart in one query
+    List<Product> findByShopAndCatalogVersionGreaterThanOrderByCatalogVersionAscIdAsc(Shop shop, long since);  // Delta sync
+
+    @Query("select p from Product p where p.shop.id = :shopId")
+    List<Product> findByShopId(@Param("shopId") Long shopId);  // Search index builds, which only know the id
+
+    // The delta sync query, trimmed to what registers are pushed; upTo keeps the window stable while writers commit
+    @Query("select new com.sp.shop.dto.StockUpdate(p.id, p.barcode, p.quantity, p.price, p.catalogVersion) "
+            + "from Product p where p.shop.id = :shopId and p.catalogVersion > :since and p.catalogVersion <= :upTo "
+            + "order by p.catalogVersion, p.id")
+    List<StockUpdate> findStockUpdatesSince(@Param("shopId") Long shopId, @Param("since") long since,
+            @Param("upTo") long upTo);
+
+    // Forward-only cursor over the catalog for export, read in fetch-size chunks (see BillRepository)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.sp.shop.dto.ProductExportRow(p.id, p.name, p.barcode, p.brand, p.category, p.price, "
+            + "p.quantity, p.imageUrl) from Product p where p.shop = :shop order by p.id")
+    Stream<ProductExportRow> streamExportRowsByShop(@Param("shop") Shop shop);
+}
@@ -0,0 +1,29 @@
+package com.sp.shop.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.sp.shop.dto.StockReservation;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * Decrements stock for each barcode with a conditional {@code UPDATE ... WHERE quantity >= ?}, sent
+     * to the database as one JDBC batch, then reads the products back in one query. Only the product
+     * rows are locked, so concurrent checkouts in the same shop do not wait on each other here. Prices
+     * must be taken from the result rather than from a cached product: a reserved row cannot change
+     * until commit.
+     *
+     * @param quantitiesByBarcode quantity to take, keyed by barcode
+     * @return the shop's products for those barcodes, keyed by barcode; unknown barcodes are left out,
+     *         and a product without enough stock left is not reserved
+     */
+    Map<String, StockReservation> reserveStock(Long shopId, Map<String, Integer> quantitiesByBarcode);
+
+    /**
+     * Bumps the shop's catalog version and stamps it on the given products, in two statements. The bump
+     * locks the shop row until commit, which is what keeps versions committing in order, so call this
+     * last, after everything else the transaction writes has been flushed.
+     */
+    void stampCatalogVersion(Long shopId, Collection<Long> productIds);
+}
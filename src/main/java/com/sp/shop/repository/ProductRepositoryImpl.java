@@ -0,0 +1,105 @@
+package com.sp.shop.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.sp.shop.dto.StockReservation;
+import com.sp.shop.entity.Product;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    private static final String RESERVE_STOCK_SQL =
+            "UPDATE product SET quantity = quantity - ? WHERE shop_id = ? AND barcode = ? AND quantity >= ?";
+    private static final String RESERVED_PRODUCTS_SQL =
+            "SELECT id, barcode, name, price FROM product WHERE shop_id = ? AND barcode IN (%s)";
+
+    // Same statement as ShopRepositoryImpl.nextCatalogVersion; the products then read the bumped value back
+    private static final String BUMP_CATALOG_VERSION_SQL =
+            "UPDATE shop SET catalog_version = catalog_version + 1 WHERE id = ?";
+    private static final String STAMP_CATALOG_VERSION_SQL =
+            "UPDATE product SET catalog_version = (SELECT catalog_version FROM shop WHERE id = ?) WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public Map<String, StockReservation> reserveStock(Long shopId, Map<String, Integer> quantitiesByBarcode) {
+        // Lock rows in barcode order, unique within the shop, so two carts sharing products cannot deadlock
+        Map<String, Integer> ordered = new TreeMap<>(quantitiesByBarcode);
+        if (ordered.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Object[]> args = new ArrayList<>(ordered.size());
+        ordered.forEach((barcode, quantity) -> args.add(new Object[] { quantity, shopId, barcode, quantity }));
+
+        int[] counts = jdbcTemplate.batchUpdate(RESERVE_STOCK_SQL, args);
+        Map<String, Boolean> reserved = new HashMap<>();
+        int i = 0;
+        for (String barcode : ordered.keySet()) {
+            reserved.put(barcode, counts[i++] > 0);
+        }
+
+        // Reserved rows read back our own update, so the price is the one locked in for this bill
+        List<Object> selectArgs = new ArrayList<>(ordered.size() + 1);
+        selectArgs.add(shopId);
+        selectArgs.addAll(ordered.keySet());
+        String placeholders = String.join(", ", Collections.nCopies(ordered.size(), "?"));
+        Map<String, StockReservation> products = new LinkedHashMap<>();
+        jdbcTemplate.query(String.format(RESERVED_PRODUCTS_SQL, placeholders), rs -> {
+            String barcode = rs.getString("barcode");
+            products.put(barcode, new StockReservation(rs.getLong("id"), barcode, rs.getString("name"),
+                    rs.getDouble("price"), reserved.getOrDefault(barcode, false)));
+        }, selectArgs.toArray());
+
+        evictFromSecondLevelCache(products.values().stream().map(StockReservation::getProductId).toList());
+        return products;
+    }
+
+    @Override
+    public void stampCatalogVersion(Long shopId, Collection<Long> productIds) {
+        jdbcTemplate.update(BUMP_CATALOG_VERSION_SQL, shopId);
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<Object> args = new ArrayList<>(productIds.size() + 1);
+        args.add(shopId);
+        args.addAll(productIds);
+        String placeholders = String.join(", ", Collections.nCopies(productIds.size(), "?"));
+        jdbcTemplate.update(String.format(STAMP_CATALOG_VERSION_SQL, placeholders), args.toArray());
+        evictFromSecondLevelCache(productIds);
+    }
+
+    /**
+     * Hibernate does not see the JDBC update, so the cached products are dropped here. They are dropped
+     * again after the commit, since a concurrent read may have cached the old rows in between.
+     */
+    private void evictFromSecondLevelCache(Collection<Long> productIds) {
+        Cache cache = entityManagerFactory.getCache();
+        productIds.forEach(id -> cache.evict(Product.class, id));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> ids = List.copyOf(productIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.forEach(id -> cache.evict(Product.class, id));
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.sp.shop.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.sp.shop.entity.ProductTombstone;
+
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+    List<ProductTombstone> findByShopIdAndCatalogVersionGreaterThanOrderByCatalogVersion(Long shopId, long since);
+}
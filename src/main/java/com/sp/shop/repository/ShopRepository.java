@@ -1,14 +1,31 @@
 package com.sp.shop.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.sp.shop.dto.ShopCatalogVersion;
 import com.sp.shop.entity.User;
 import com.sp.shop.entity.Shop;
 
+import jakarta.persistence.QueryHint;
 
-public interface ShopRepository extends JpaRepository<Shop, Long> {
+
+public interface ShopRepository extends JpaRepository<Shop, Long>, ShopRepositoryCustom {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Shop> findByOwner(User owner);
+
+    @Query("select s.catalogVersion from Shop s where s.id = :shopId")
+    long findCatalogVersion(@Param("shopId") Long shopId);
+
+    @Query("select new com.sp.shop.dto.ShopCatalogVersion(s.id, s.catalogVersion) from Shop s where s.id in :shopIds")
+    List<ShopCatalogVersion> findCatalogVersions(@Param("shopIds") Collection<Long> shopIds);
 }
 
+
@@ -0,0 +1,11 @@
+package com.sp.shop.repository;
+
+public interface ShopRepositoryCustom {
+
+    /**
+     * Bumps and returns the shop's catalog version. The UPDATE keeps the shop row locked until the
+     * caller commits, so versions become visible in the order they were handed out. Every writer in the
+     * shop queues on that lock, so take the version last, once the rows it versions have been flushed.
+     */
+    long nextCatalogVersion(Long shopId);
+}
@@ -0,0 +1,23 @@
+package com.sp.shop.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class ShopRepositoryImpl implements ShopRepositoryCustom {
+
+    // Plain JDBC on purpose: a JPQL bulk update would make Hibernate drop every cached Shop, once per checkout
+    private static final String INCREMENT_SQL = "UPDATE shop SET catalog_version = catalog_version + 1 WHERE id = ?";
+    private static final String SELECT_SQL = "SELECT catalog_version FROM shop WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public long nextCatalogVersion(Long shopId) {
+        jdbcTemplate.update(INCREMENT_SQL, shopId);
+        return jdbcTemplate.queryForObject(SELECT_SQL, Long.class, shopId);
+    }
+}
@@ -1,20 +1,70 @@
 package com.sp.shop.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.sp.shop.dto.UserResponseDTO;
+import com.sp.shop.dto.UserRoleRow;
 import com.sp.shop.entity.User;
 
+import jakarta.persistence.QueryHint;
+
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Login, shop resolution and token revocation checks look users up by name or email; cached, these
+    // become id lookups in the user region until the users table is written
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByUsername(String username);  // Find user by username
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByEmail(String email);  // Find user by email
-    
-    Page<User> findByUsernameContainingOrEmailContainingOrMobileContaining(
-        String username, String email, String mobile, Pageable pageable);
-}
\ No newline at end of file
+
+    // Admin listing and search are projected straight to the response: no password hash or verification
+    // code is read, and roles come from findRolesByUserIdIn once per page
+    @Query(value = "select new com.sp.shop.dto.UserResponseDTO(u.id, u.username, u.email, u.mobile, u.isVerified) "
+            + "from User u",
+            countQuery = "select count(u) from User u")
+    Page<UserResponseDTO> findResponses(Pageable pageable);
+
+    // Prefixes only (escaped with '!'), so each branch of the OR is a range on the username, email or mobile index
+    @Query(value = "select new com.sp.shop.dto.UserResponseDTO(u.id, u.username, u.email, u.mobile, u.isVerified) "
+            + "from User u where u.username like :prefix escape '!' or u.email like :prefix escape '!' "
+            + "or u.mobile like :prefix escape '!'",
+            countQuery = "select count(u) from User u where u.username like :prefix escape '!' "
+                    + "or u.email like :prefix escape '!' or u.mobile like :prefix escape '!'")
+    Page<UserResponseDTO> searchResponses(@Param("prefix") String prefix, Pageable pageable);
+
+    // Keyset pages in id order: no offset to skip over and no count
+    @Query("select new com.sp.shop.dto.UserResponseDTO(u.id, u.username, u.email, u.mobile, u.isVerified) "
+            + "from User u where u.id > :afterId order by u.id")
+    List<UserResponseDTO> findResponsesAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    // Keyset search runs one query per column, each a range on that column's index, and merges them by id
+    @Query("select new com.sp.shop.dto.UserResponseDTO(u.id, u.username, u.email, u.mobile, u.isVerified) "
+            + "from User u where u.username like :prefix escape '!' and u.id > :afterId order by u.id")
+    List<UserResponseDTO> findResponsesByUsernamePrefixAfter(@Param("prefix") String prefix,
+            @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select new com.sp.shop.dto.UserResponseDTO(u.id, u.username, u.email, u.mobile, u.isVerified) "
+            + "from User u where u.email like :prefix escape '!' and u.id > :afterId order by u.id")
+    List<UserResponseDTO> findResponsesByEmailPrefixAfter(@Param("prefix") String prefix,
+            @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select new com.sp.shop.dto.UserResponseDTO(u.id, u.username, u.email, u.mobile, u.isVerified) "
+            + "from User u where u.mobile like :prefix escape '!' and u.id > :afterId order by u.id")
+    List<UserResponseDTO> findResponsesByMobilePrefixAfter(@Param("prefix") String prefix,
+            @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select new com.sp.shop.dto.UserRoleRow(u.id, r) from User u join u.roles r where u.id in :userIds")
+    List<UserRoleRow> findRolesByUserIdIn(@Param("userIds") Collection<Long> userIds);
+}
@@ -0,0 +1,433 @@
+package com.sp.shop.search;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.sp.shop.entity.Product;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.repository.ProductRepository;
+
+/**
+ * In-process inverted index over product name, brand, category and barcode, one per shop.
+ * <p>
+ * Terms are kept in a sorted dictionary for prefix lookups, and every term is also indexed by its
+ * trigrams so that misspelled query terms can be matched by edit distance. A shop's index is built
+ * from the database on its first search and then kept current by {@link #index} and {@link #remove}.
+ * Writes those calls never see, such as another node's, are picked up by rebuilding the index in the
+ * background once it is older than {@code refresh-after-write}; searches keep using the old one meanwhile.
+ * An index older than {@code expire-after-write} is dropped and rebuilt by the next search.
+ * <p>
+ * Memory is bounded by {@code maximum-entries}, counted as term postings plus indexed products over all
+ * shops, so a large catalog takes up as much of the budget as it needs. An index is weighed when it is
+ * built or rebuilt; products added in between are counted from the next rebuild.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 1;
+    private static final int BARCODE_WEIGHT = 3;
+
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int FUZZY_SCORE = 1;
+
+    private final ProductRepository productRepository;
+    private final AsyncLoadingCache<Long, ShopIndex> shops;
+
+    @Autowired
+    public ProductSearchIndex(
+            ProductRepository productRepository,
+            @Value("${shopmate.search.maximum-entries:1000000}") long maximumEntries,
+            @Value("${shopmate.search.refresh-after-write:10m}") Duration refreshAfterWrite,
+            @Value("${shopmate.search.expire-after-write:1h}") Duration expireAfterWrite) {
+        this(productRepository, maximumEntries, refreshAfterWrite, expireAfterWrite, Ticker.systemTicker(),
+                ForkJoinPool.commonPool());
+    }
+
+    ProductSearchIndex(ProductRepository productRepository, long maximumEntries, Duration refreshAfterWrite,
+            Duration expireAfterWrite, Ticker ticker, Executor builds) {
+        this.productRepository = productRepository;
+        this.shops = Caffeine.newBuilder()
+                .maximumWeight(maximumEntries)
+                .weigher((Long shopId, ShopIndex index) -> index.weight())
+                .refreshAfterWrite(refreshAfterWrite)
+                .expireAfterWrite(expireAfterWrite)
+                .ticker(ticker)
+                .executor(builds)
+                .buildAsync(new AsyncCacheLoader<Long, ShopIndex>() {
+                    // The database is read on the executor, never under Caffeine's map lock, so searches
+                    // waiting for the build do not pin a virtual thread
+                    @Override
+                    public CompletableFuture<ShopIndex> asyncLoad(Long shopId, Executor executor) {
+                        return CompletableFuture.supplyAsync(() -> build(shopId), executor);
+                    }
+
+                    @Override
+                    public CompletableFuture<ShopIndex> asyncReload(Long shopId, ShopIndex old, Executor executor) {
+                        // Called under a map lock, so the rebuild itself runs on the executor
+                        old.startRecording();
+                        return CompletableFuture.supplyAsync(() -> {
+                            try {
+                                return old.handOverTo(build(shopId));
+                            } catch (RuntimeException e) {
+                                old.stopRecording();  // Caffeine keeps serving the old index
+                                throw e;
+                            }
+                        }, executor);
+                    }
+                });
+    }
+
+    /**
+     * Returns the ids of the best matching products in the shop, highest score first.
+     * Every query term has to match (exactly, as a prefix, or within a small edit distance).
+     */
+    public List<Long> search(Shop shop, String query, int page, int size) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        ShopIndex index;
+        try {
+            index = shops.get(shop.getId()).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;  // Caffeine drops a failed build, so the next search tries again
+            }
+            throw e;
+        }
+        List<Map.Entry<Long, Integer>> ranked = index.score(terms);
+        int from = Math.min(page * size, ranked.size());
+        int to = Math.min(from + size, ranked.size());
+        return ranked.subList(from, to).stream().map(Map.Entry::getKey).toList();
+    }
+
+    // Adds or replaces a product; shops whose index has not been built yet pick it up when they are,
+    // and an index still being built gets the change once it is done
+    public void index(Product product) {
+        apply(product.getShop().getId(), built -> built.put(product));
+    }
+
+    public void remove(Long shopId, Long productId) {
+        apply(shopId, built -> built.remove(productId));
+    }
+
+    /**
+     * Inside a transaction the change waits for the commit, like BarcodeIndex evictions: a rolled back
+     * write must not show up in search results, and a committed one must not be overwritten by a
+     * rebuild that read the table before it.
+     */
+    private void apply(Long shopId, Consumer<ShopIndex> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyNow(shopId, change);
+                }
+            });
+        } else {
+            applyNow(shopId, change);
+        }
+    }
+
+    private void applyNow(Long shopId, Consumer<ShopIndex> change) {
+        CompletableFuture<ShopIndex> index = shops.getIfPresent(shopId);
+        if (index != null) {
+            index.thenAccept(built -> built.apply(change));
+        }
+    }
+
+    private ShopIndex build(Long shopId) {
+        ShopIndex index = new ShopIndex();
+        productRepository.findByShopId(shopId).forEach(index::put);
+        return index;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> trigrams(String term) {
+        String padded = "$" + term + "$";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static int maxEdits(String term) {
+        if (term.length() < 4 || !term.chars().anyMatch(Character::isLetter)) {
+            return 0;  // short terms and barcodes must match exactly or by prefix
+        }
+        return term.length() < 8 ? 1 : 2;
+    }
+
+    // Levenshtein distance, giving up as soon as it must exceed max
+    private static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static final class ShopIndex {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        // While a rebuild runs, changes made here are recorded and then replayed onto the rebuilt index;
+        // once it has taken over, changes that still arrive here are passed straight on
+        private List<Consumer<ShopIndex>> recorded;
+        private ShopIndex successor;
+        // term -> (product id -> best field weight of that term in the product)
+        private final NavigableMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+        // trigram -> terms containing it, for typo-tolerant lookups
+        private final Map<String, Set<String>> grams = new ConcurrentHashMap<>();
+        // product id -> its terms, so a product can be unindexed
+        private final Map<Long, Set<String>> documents = new ConcurrentHashMap<>();
+        // product id -> name, to break score ties alphabetically
+        private final Map<Long, String> names = new ConcurrentHashMap<>();
+
+        // Postings plus documents, the bulk of an index's memory
+        int weight() {
+            lock.readLock().lock();
+            try {
+                long entries = documents.size();
+                for (Map<Long, Integer> ids : postings.values()) {
+                    entries += ids.size();
+                }
+                return (int) Math.min(entries, Integer.MAX_VALUE);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void apply(Consumer<ShopIndex> change) {
+            lock.writeLock().lock();
+            try {
+                change.accept(this);
+                if (successor != null) {
+                    successor.apply(change);
+                } else if (recorded != null) {
+                    recorded.add(change);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void startRecording() {
+            lock.writeLock().lock();
+            try {
+                recorded = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void stopRecording() {
+            lock.writeLock().lock();
+            try {
+                recorded = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        // Replaying is safe even for changes the rebuild already read: put replaces and remove ignores absentees
+        ShopIndex handOverTo(ShopIndex rebuilt) {
+            lock.writeLock().lock();
+            try {
+                recorded.forEach(change -> change.accept(rebuilt));
+                recorded = null;
+                successor = rebuilt;
+                return rebuilt;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void put(Product product) {
+            Map<String, Integer> weights = new HashMap<>();
+            addField(weights, product.getName(), NAME_WEIGHT);
+            addField(weights, product.getBrand(), BRAND_WEIGHT);
+            addField(weights, product.getCategory(), CATEGORY_WEIGHT);
+            addField(weights, product.getBarcode(), BARCODE_WEIGHT);
+
+            lock.writeLock().lock();
+            try {
+                removeLocked(product.getId());
+                weights.forEach((term, weight) -> {
+                    postings.computeIfAbsent(term, t -> {
+                        trigrams(t).forEach(gram -> grams.computeIfAbsent(gram, g -> new HashSet<>()).add(t));
+                        return new HashMap<>();
+                    }).put(product.getId(), weight);
+                });
+                documents.put(product.getId(), weights.keySet());
+                names.put(product.getId(), product.getName() != null ? product.getName() : "");
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long productId) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(productId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeLocked(Long productId) {
+            Set<String> terms = documents.remove(productId);
+            names.remove(productId);
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms) {
+                Map<Long, Integer> ids = postings.get(term);
+                if (ids == null) {
+                    continue;
+                }
+                ids.remove(productId);
+                if (ids.isEmpty()) {
+                    postings.remove(term);
+                    for (String gram : trigrams(term)) {
+                        Set<String> gramTerms = grams.get(gram);
+                        if (gramTerms != null) {
+                            gramTerms.remove(term);
+                            if (gramTerms.isEmpty()) {
+                                grams.remove(gram);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Map.Entry<Long, Integer>> score(List<String> queryTerms) {
+            lock.readLock().lock();
+            try {
+                Map<Long, Integer> scores = null;
+                for (String queryTerm : queryTerms) {
+                    Map<Long, Integer> termScores = scoreTerm(queryTerm);
+                    if (scores == null) {
+                        scores = termScores;
+                    } else {
+                        // Every query term must match, so keep only products seen for all of them
+                        scores.keySet().retainAll(termScores.keySet());
+                        scores.replaceAll((id, score) -> score + termScores.get(id));
+                    }
+                    if (scores.isEmpty()) {
+                        return List.of();
+                    }
+                }
+                List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(scores.entrySet());
+                ranked.sort(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(entry -> names.getOrDefault(entry.getKey(), ""), Comparator.naturalOrder()));
+                return ranked;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private Map<Long, Integer> scoreTerm(String queryTerm) {
+            Map<Long, Integer> scores = new HashMap<>();
+
+            // Exact and prefix matches straight from the sorted dictionary
+            for (Map.Entry<String, Map<Long, Integer>> entry
+                    : postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false).entrySet()) {
+                int match = entry.getKey().equals(queryTerm) ? EXACT_SCORE : PREFIX_SCORE;
+                entry.getValue().forEach((id, weight) -> scores.merge(id, match * weight, Math::max));
+            }
+
+            // Typos: candidate terms share a trigram with the query term and are within the edit budget
+            int maxEdits = maxEdits(queryTerm);
+            if (maxEdits > 0) {
+                Set<String> candidates = new HashSet<>();
+                for (String gram : trigrams(queryTerm)) {
+                    Set<String> gramTerms = grams.get(gram);
+                    if (gramTerms != null) {
+                        candidates.addAll(gramTerms);
+                    }
+                }
+                for (String candidate : candidates) {
+                    if (candidate.startsWith(queryTerm)) {
+                        continue;  // already scored as exact or prefix
+                    }
+                    String compared = candidate.length() > queryTerm.length()
+                            ? candidate.substring(0, queryTerm.length())  // tolerate typos in a prefix too
+                            : candidate;
+                    if (editDistance(queryTerm, compared, maxEdits) <= maxEdits) {
+                        postings.get(candidate).forEach((id, weight) -> scores.merge(id, FUZZY_SCORE * weight, Math::max));
+                    }
+                }
+            }
+            return scores;
+        }
+
+        private static void addField(Map<String, Integer> weights, String value, int weight) {
+            for (String term : tokenize(value)) {
+                weights.merge(term, weight, Math::max);
+            }
+        }
+    }
+}
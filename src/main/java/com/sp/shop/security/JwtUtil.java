@@ -2,21 +2,64 @@ package com.sp.shop.security;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sp.shop.entity.Role;
+
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 
 @Component
 public class JwtUtil {
+
+    public static final String ROLES_CLAIM = "roles";
+    public static final String SHOP_ID_CLAIM = "shopId";
    
     private final String SECRET_KEY = "mysecretkeyformyappsecurelystored";
 
+    // The signing key and parser are immutable and thread-safe, so build them once
+    private final Key signKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(signKey).build();
+
+    // Recently verified tokens, each kept no longer than its own expiry; null when the cache size is 0
+    private final Cache<String, Claims> verifiedTokens;
+
+    public JwtUtil(@Value("${shopmate.jwt.verified-token-cache-size:10000}") long verifiedTokenCacheSize) {
+        this.verifiedTokens = verifiedTokenCacheSize <= 0 ? null : Caffeine.newBuilder()
+                .maximumSize(verifiedTokenCacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String token, Claims claims, long currentTime) {
+                        Date expiration = claims.getExpiration();
+                        long remaining = expiration != null ? expiration.getTime() - System.currentTimeMillis() : 0;
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remaining, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     private Key getSignKey() {
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+        return signKey;
     }
 
     public String generateToken(String username) {
@@ -28,17 +71,52 @@ public class JwtUtil {
                 .compact();
     }
 
+    // Token carrying everything the request filter needs, so authentication needs no user lookup
+    public String generateToken(String username, Collection<Role> roles, Long shopId) {
+        JwtBuilder builder = Jwts.builder()
+                .setSubject(username)
+                .claim(ROLES_CLAIM, roles.stream().map(Role::name).toList())
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10)) // 10 hours
+                .signWith(getSignKey(), SignatureAlgorithm.HS256);
+        if (shopId != null) {
+            builder.claim(SHOP_ID_CLAIM, shopId);
+        }
+        return builder.compact();
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSignKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claimsResolver.apply(claims);
+        return claimsResolver.apply(parseClaims(token));
+    }
+
+    // Verifies signature and expiry once and returns every claim; repeat tokens are served from the cache
+    public Claims parseClaims(String token) {
+        if (verifiedTokens == null) {
+            return parser.parseClaimsJws(token).getBody();
+        }
+
+        Claims cached = verifiedTokens.getIfPresent(token);
+        if (cached != null && cached.getExpiration() != null && cached.getExpiration().getTime() > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        verifiedTokens.put(token, claims);
+        return claims;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<String> extractRoles(Claims claims) {
+        return claims.get(ROLES_CLAIM, List.class);
+    }
+
+    public Long extractShopId(Claims claims) {
+        Number shopId = claims.get(SHOP_ID_CLAIM, Number.class);
+        return shopId != null ? shopId.longValue() : null;
     }
     
     // Validate token
@@ -46,4 +124,4 @@ public class JwtUtil {
         return extractUsername(token).equals(username);  // Check if token is valid for the user
     }
     
-}
\ No newline at end of file
+}
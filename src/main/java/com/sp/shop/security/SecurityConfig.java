@@ -1,5 +1,6 @@
 package com.sp.shop.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -8,7 +9,6 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -35,16 +35,20 @@ public class SecurityConfig {
     }
 
     @Bean
-    public AuthenticationManager authenticationManager(UserDetailsService userDetailsService) {
+    public AuthenticationManager authenticationManager(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return new ProviderManager(Collections.singletonList(authProvider));
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    // BCrypt runs on its own bounded pool instead of request threads; hashes at another cost are redone at login
+    @Bean(destroyMethod = "shutdown")
+    public BoundedBCryptPasswordEncoder passwordEncoder(
+            @Value("${shopmate.password.bcrypt-strength:10}") int strength,
+            @Value("${shopmate.password.hashing-threads:2}") int threads,
+            @Value("${shopmate.password.queue-capacity:64}") int queueCapacity) {
+        return new BoundedBCryptPasswordEncoder(strength, threads, queueCapacity);
     }
 
     @Bean
@@ -59,6 +63,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/user/verify").permitAll()
                 .requestMatchers("/api/user/resend-verification").permitAll()
                 .requestMatchers("/admin/**").hasRole("ADMIN")
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .requestMatchers("/api/**").hasAnyRole("STAFF", "ADMIN")
                 .requestMatchers("/api/**").hasAnyRole("STAFF", "ADMIN")
                 .requestMatchers("/error").permitAll()
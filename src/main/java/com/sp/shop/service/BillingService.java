@@ -1,20 +1,41 @@
 package com.sp.shop.service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.PageRequest;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.sp.shop.cache.BarcodeIndex;
+import com.sp.shop.cache.ShopContextResolver;
+import com.sp.shop.dto.BillItemResponse;
+import com.sp.shop.dto.BillLineRow;
+import com.sp.shop.dto.BillPage;
 import com.sp.shop.dto.BillRequest;
+import com.sp.shop.dto.BillResponse;
+import com.sp.shop.dto.StockReservation;
 import com.sp.shop.entity.Bill;
 import com.sp.shop.entity.BillItem;
-import com.sp.shop.entity.Product;
 import com.sp.shop.entity.Shop;
+import com.sp.shop.metrics.StageTimer;
+import com.sp.shop.repository.BillItemRepository;
 import com.sp.shop.repository.BillRepository;
+import com.sp.shop.repository.DailySalesRepository;
 import com.sp.shop.repository.ProductRepository;
 import com.sp.shop.repository.ShopRepository;
-import com.sp.shop.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 
 
@@ -22,36 +43,87 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class BillingService {
 
+    // Open ends of the date filter; both fit MySQL DATETIME
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Upper bound on bill ids per IN list when loading items
+    private static final int ITEM_BATCH_SIZE = 1000;
+
     private final ProductRepository productRepository;
-    private final ShopRepository shopRepository;
-    private final UserRepository userRepository;
+    private final ShopContextResolver shopContextResolver;
     private final BillRepository billRepository;
+    private final BarcodeIndex barcodeIndex;
+    private final BillItemRepository billItemRepository;
+    private final DailySalesRepository dailySalesRepository;
+    private final ShopRepository shopRepository;
+    private final MeterRegistry meterRegistry;
 
+    /**
+     * Records a bill and takes its items out of stock. Each stage (principal, stock-update, bill-persist)
+     * is timed in shopmate.checkout.stage; bill-persist runs until the commit, which is when the bill and
+     * item inserts are flushed.
+     */
+    @Transactional
     public Bill createBill(BillRequest request, String username) {
-        com.sp.shop.entity.User user = userRepository.findByUsername(username).orElseThrow();
-        Shop shop = shopRepository.findByOwner(user).orElseThrow();
+        StageTimer timer = StageTimer.start(meterRegistry, "shopmate.checkout");
+        try {
+            Bill bill = recordBill(request, username, timer);
+            timer.finishAfterCompletion("bill-persist", "success");
+            return bill;
+        } catch (RuntimeException e) {
+            timer.finish("error");
+            throw e;
+        }
+    }
+
+    private Bill recordBill(BillRequest request, String username, StageTimer timer) {
+        Shop shop = shopContextResolver.resolveShop(username);
+        timer.shop(shop.getId()).stage("principal");
 
         Bill bill = new Bill();
         bill.setCustomerName(request.getCustomerName());
         bill.setCreatedAt(LocalDateTime.now());
         bill.setShop(shop);
 
-        double total = 0;
-        List<BillItem> billItems = new ArrayList<>();
-
+        // The same barcode may be scanned on several cart lines, so check stock against the total. A line
+        // that is not positive would pass the conditional decrement and put stock back, so it is refused
+        Map<String, Integer> requested = new LinkedHashMap<>();
         for (BillRequest.CartItem cartItem : request.getItems()) {
-            Product product = productRepository.findByBarcode(cartItem.getBarcode())
-                    .orElseThrow(() -> new RuntimeException("Product not found"));
+            if (cartItem.getQuantity() <= 0) {
+                throw new RuntimeException("Invalid quantity for " + cartItem.getBarcode());
+            }
+            requested.merge(cartItem.getBarcode(), cartItem.getQuantity(), Math::addExact);
+        }
 
-            if (product.getQuantity() < cartItem.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for " + product.getName());
+        // The conditional decrement locks only the product rows, so concurrent registers in a shop cannot
+        // oversell or lose updates and still do not queue behind each other. Names and prices come from the
+        // locked rows, never from the barcode index, which may be serving a product edited on another node
+        Map<String, StockReservation> products = productRepository.reserveStock(shop.getId(), requested);
+        timer.stage("stock-update");
+        for (String barcode : requested.keySet()) {
+            StockReservation product = products.get(barcode);
+            if (product == null) {
+                meterRegistry.counter("shopmate.checkout.product.not.found", "shop", timer.shop()).increment();
+                throw new RuntimeException("Product not found");
+            }
+            if (!product.isReserved()) {
+                meterRegistry.counter("shopmate.checkout.stock.conflict", "shop", timer.shop()).increment();
+                throw new RuntimeException("Insufficient stock for " + product.getProductName());
             }
+        }
+        barcodeIndex.evictAll(shop.getId(), products.keySet());
+
+        double total = 0;
+        List<BillItem> billItems = new ArrayList<>();
 
-            product.setQuantity(product.getQuantity() - cartItem.getQuantity());
-            productRepository.save(product);
+        for (BillRequest.CartItem cartItem : request.getItems()) {
+            StockReservation product = products.get(cartItem.getBarcode());
 
             BillItem item = new BillItem();
-            item.setProductName(product.getName());
+            item.setProductName(product.getProductName());
             item.setBarcode(product.getBarcode());
             item.setQuantity(cartItem.getQuantity());
             item.setPricePerUnit(product.getPrice());
@@ -64,13 +136,133 @@ public class BillingService {
 
         bill.setTotalAmount(total);
         bill.setItems(billItems);
+        timer.summary("shopmate.checkout.cart.lines", billItems.size());
+        timer.summary("shopmate.checkout.bill.total", total);
+
+        Bill saved = billRepository.saveAndFlush(bill);
+
+        // Reports read these rollups; updating them here keeps them consistent with the bill. The day's row
+        // and the shop's catalog version are shared by every checkout in the shop, so both are written
+        // last and only this tail and the commit are serialized per shop
+        dailySalesRepository.addBill(shop.getId(), bill.getCreatedAt().toLocalDate(), total, billItems);
+        productRepository.stampCatalogVersion(shop.getId(),
+                products.values().stream().map(StockReservation::getProductId).toList());
+        return saved;
+    }
+
+    /**
+     * Weak ETag for the shop's bill history, for the same reason as the catalog's. Every checkout bumps
+     * the catalog version, so the version changes whenever a bill is added and can be read without
+     * touching the bill tables.
+     */
+    public String getBillsETag(String username) {
+        Shop shop = shopContextResolver.resolveShop(username);
+        return "W/\"" + shop.getId() + "-" + shopRepository.findCatalogVersion(shop.getId()) + "\"";
+    }
+
+    @Transactional(readOnly = true)
+    public List<BillResponse> getAllBillsForUser(String username) {
+        Shop shop = shopContextResolver.resolveShop(username);
+        return attachItems(billRepository.findResponsesByShop(shop));
+    }
+
+    /**
+     * One page of bills, newest first, optionally limited to the inclusive date range [from, to].
+     * Pass the previous page's {@code nextCursor} to continue; pages never shift as new bills arrive.
+     */
+    @Transactional(readOnly = true)
+    public BillPage getBillPage(String username, LocalDate from, LocalDate to, String cursor, int limit) {
+        Shop shop = shopContextResolver.resolveShop(username);
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        PageRequest page = PageRequest.of(0, size + 1);  // one extra row tells us whether there is a next page
 
-        return billRepository.save(bill);
+        List<BillResponse> bills;
+        if (cursor == null || cursor.isBlank()) {
+            bills = billRepository.findPage(shop, startOf(from), endOf(to), page);
+        } else {
+            String[] position = decodeCursor(cursor);
+            bills = billRepository.findPageAfter(shop, startOf(from), endOf(to),
+                    LocalDateTime.parse(position[0]), Long.valueOf(position[1]), page);
+        }
+
+        String nextCursor = null;
+        if (bills.size() > size) {
+            bills = new ArrayList<>(bills.subList(0, size));
+            nextCursor = encodeCursor(bills.get(size - 1));
+        }
+        return new BillPage(attachItems(bills), nextCursor);
     }
 
-    public List<Bill> getAllBillsForUser(String username) {
-        com.sp.shop.entity.User user = userRepository.findByUsername(username).orElseThrow();
-        Shop shop = shopRepository.findByOwner(user).orElseThrow();
-        return billRepository.findByShop(shop);
+    /**
+     * Walks every matching bill over a single forward-only query of bill + item rows and hands each
+     * completed bill to {@code consumer}; only one bill is held in memory at a time.
+     */
+    @Transactional(readOnly = true)
+    public void streamBills(String username, LocalDate from, LocalDate to, Consumer<BillResponse> consumer) {
+        Shop shop = shopContextResolver.resolveShop(username);
+        try (Stream<BillLineRow> rows = billRepository.streamLinesByShop(shop, startOf(from), endOf(to))) {
+            BillResponse current = null;
+            Iterator<BillLineRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                BillLineRow row = iterator.next();
+                if (current == null || !current.getId().equals(row.getBillId())) {
+                    if (current != null) {
+                        consumer.accept(current);
+                    }
+                    current = new BillResponse(row.getBillId(), row.getCustomerName(), row.getTotalAmount(),
+                            row.getCreatedAt(), row.getShopId());
+                }
+                if (row.getItemId() != null) {
+                    current.getItems().add(new BillItemResponse(row.getBillId(), row.getItemId(),
+                            row.getProductName(), row.getBarcode(), row.getQuantity(), row.getPricePerUnit(),
+                            row.getTotalPrice()));
+                }
+            }
+            if (current != null) {
+                consumer.accept(current);
+            }
+        }
+    }
+
+    // Loads the items of all given bills with batched IN queries and attaches them in order
+    private List<BillResponse> attachItems(List<BillResponse> bills) {
+        Map<Long, BillResponse> byId = new LinkedHashMap<>();
+        bills.forEach(bill -> byId.put(bill.getId(), bill));
+
+        List<Long> ids = new ArrayList<>(byId.keySet());
+        for (int start = 0; start < ids.size(); start += ITEM_BATCH_SIZE) {
+            List<Long> chunk = ids.subList(start, Math.min(start + ITEM_BATCH_SIZE, ids.size()));
+            for (BillItemResponse item : billItemRepository.findResponsesByBillIdIn(chunk)) {
+                byId.get(item.getBillId()).getItems().add(item);
+            }
+        }
+        return bills;
+    }
+
+    static LocalDateTime startOf(LocalDate from) {
+        return from != null ? from.atStartOfDay() : EARLIEST;
+    }
+
+    static LocalDateTime endOf(LocalDate to) {
+        return to != null ? to.plusDays(1).atStartOfDay() : LATEST;
+    }
+
+    private static String encodeCursor(BillResponse bill) {
+        String position = bill.getCreatedAt() + "|" + bill.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            LocalDateTime.parse(position[0]);
+            Long.parseLong(position[1]);
+            return position;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
     }
-}
\ No newline at end of file
+}
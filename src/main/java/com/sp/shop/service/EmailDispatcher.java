@@ -0,0 +1,199 @@
+package com.sp.shop.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.sp.shop.entity.EmailOutbox;
+import com.sp.shop.entity.EmailStatus;
+import com.sp.shop.repository.EmailOutboxRepository;
+
+/**
+ * Drains the email outbox in batches. A batch goes out over a single SMTP connection; messages that
+ * fail are retried with exponential backoff until max-attempts, after which they are marked FAILED.
+ * <p>
+ * No transaction is open while SMTP is talked to. A short transaction claims the batch, marking it
+ * IN_FLIGHT with a lease in next_attempt_at; the outcome is recorded in a second one. Rows whose lease ran
+ * out, because their node died mid-send, are claimed again, so a message may occasionally go out twice.
+ * <p>
+ * The SMTP conversation itself runs on a platform thread of its own. JavaMail's transport holds a monitor
+ * while it talks to the server, which would pin the carrier when the scheduler runs on virtual threads.
+ */
+@Component
+public class EmailDispatcher implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailDispatcher.class);
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final ExecutorService smtpThread = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "smtp-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public EmailDispatcher(
+            EmailOutboxRepository emailOutboxRepository,
+            JavaMailSender mailSender,
+            TransactionTemplate transactionTemplate,
+            @Value("${shopmate.mail.batch-size:50}") int batchSize,
+            @Value("${shopmate.mail.max-attempts:8}") int maxAttempts,
+            @Value("${shopmate.mail.initial-backoff:30s}") Duration initialBackoff,
+            @Value("${shopmate.mail.max-backoff:1h}") Duration maxBackoff,
+            @Value("${shopmate.mail.lease:5m}") Duration lease) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+    }
+
+    @Scheduled(fixedDelayString = "${shopmate.mail.dispatch-interval:5s}")
+    public void dispatch() {
+        // Keep draining while whole batches are claimed, so a backlog clears without waiting for the next tick
+        List<EmailOutbox> batch;
+        do {
+            batch = transactionTemplate.execute(status -> claimBatch());
+            if (!batch.isEmpty()) {
+                dispatchBatch(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private List<EmailOutbox> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutbox> batch = emailOutboxRepository.findByStatusInAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                Set.of(EmailStatus.PENDING, EmailStatus.IN_FLIGHT), now, PageRequest.of(0, batchSize));
+        // Truncated to what the column stores, so recording can tell its own lease from a later claim's
+        LocalDateTime leasedUntil = now.plus(lease).truncatedTo(ChronoUnit.MICROS);
+        for (EmailOutbox email : batch) {
+            email.setStatus(EmailStatus.IN_FLIGHT);
+            email.setNextAttemptAt(leasedUntil);
+        }
+        return emailOutboxRepository.saveAll(batch);
+    }
+
+    private void dispatchBatch(List<EmailOutbox> batch) {
+        Map<SimpleMailMessage, EmailOutbox> messages = new IdentityHashMap<>();
+        for (EmailOutbox email : batch) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(email.getRecipient());
+            message.setSubject(email.getSubject());
+            message.setText(email.getBody());
+            messages.put(message, email);
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        try {
+            send(messages.keySet().toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+            if (failures.isEmpty()) {
+                failures = failAll(messages, e);
+            }
+        } catch (MailException e) {
+            failures = failAll(messages, e);
+        }
+
+        Map<Object, Exception> failed = failures;
+        transactionTemplate.executeWithoutResult(status -> record(messages, failed));
+    }
+
+    private void record(Map<SimpleMailMessage, EmailOutbox> messages, Map<Object, Exception> failures) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, EmailOutbox> current = new HashMap<>();
+        emailOutboxRepository.findAllById(messages.values().stream().map(EmailOutbox::getId).toList())
+                .forEach(email -> current.put(email.getId(), email));
+        for (Map.Entry<SimpleMailMessage, EmailOutbox> entry : messages.entrySet()) {
+            EmailOutbox claimed = entry.getValue();
+            EmailOutbox email = current.get(claimed.getId());
+            if (email == null || email.getStatus() != EmailStatus.IN_FLIGHT
+                    || !email.getNextAttemptAt().equals(claimed.getNextAttemptAt())) {
+                continue;  // the lease ran out and another dispatcher claimed the row
+            }
+            Exception failure = failures.get(entry.getKey());
+            email.setAttempts(email.getAttempts() + 1);
+            if (failure == null) {
+                email.setStatus(EmailStatus.SENT);
+                email.setSentAt(now);
+                email.setLastError(null);
+            } else {
+                email.setStatus(EmailStatus.PENDING);
+                retryLater(email, failure, now);
+            }
+        }
+    }
+
+    private void send(SimpleMailMessage[] messages) {
+        Future<?> sending = smtpThread.submit(() -> mailSender.send(messages));
+        try {
+            sending.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            throw new MailSendException("Sending failed", e.getCause());
+        } catch (InterruptedException e) {
+            sending.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while sending", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        smtpThread.shutdown();
+    }
+
+    private void retryLater(EmailOutbox email, Exception failure, LocalDateTime now) {
+        String error = String.valueOf(failure.getMessage());
+        email.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        if (email.getAttempts() >= maxAttempts) {
+            email.setStatus(EmailStatus.FAILED);
+            log.error("Giving up on email {} to {} after {} attempts", email.getId(), email.getRecipient(), email.getAttempts(), failure);
+            return;
+        }
+        long factor = 1L << Math.min(email.getAttempts() - 1, 20);
+        Duration backoff = initialBackoff.multipliedBy(factor);
+        email.setNextAttemptAt(now.plus(backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff));
+        log.warn("Email {} to {} failed (attempt {}), retrying at {}", email.getId(), email.getRecipient(),
+                email.getAttempts(), email.getNextAttemptAt());
+    }
+
+    private static Map<Object, Exception> failAll(Map<SimpleMailMessage, EmailOutbox> messages, Exception e) {
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        messages.keySet().forEach(message -> failures.put(message, e));
+        return failures;
+    }
+}
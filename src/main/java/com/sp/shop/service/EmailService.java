@@ -1,38 +1,48 @@
 package com.sp.shop.service;
 
+import java.time.LocalDateTime;
+
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import com.sp.shop.entity.EmailOutbox;
+import com.sp.shop.entity.EmailStatus;
+import com.sp.shop.repository.EmailOutboxRepository;
+
+/**
+ * Queues transactional emails in the outbox. Nothing here talks to SMTP: the rows are written in the
+ * caller's transaction and EmailDispatcher delivers them in the background.
+ */
 @Service
 public class EmailService {
 
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailOutboxRepository emailOutboxRepository;
 
     public void sendRegistrationEmail(String toEmail, String username) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(toEmail);
-        message.setSubject("Registration Successful");
-        message.setText("Dear " + username + ",\n\nYour registration was successful!\n\nThank you,\nTest Team");
-        mailSender.send(message);
+        enqueue(toEmail, "Registration Successful",
+                "Dear " + username + ",\n\nYour registration was successful!\n\nThank you,\nTest Team");
     }
 
     public void sendVerificationEmail(String to, String code) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject("Email Verification");
-        message.setText("Your verification code is: " + code + "\n\nPlease use this code to verify your email address.");
-        mailSender.send(message);
+        enqueue(to, "Email Verification",
+                "Your verification code is: " + code + "\n\nPlease use this code to verify your email address.");
     }
 
     // Send registration success email
     public void sendSuccessEmail(String to, String username) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject("Email Verification Successful");
-        message.setText("Dear " + username + ",\n\nYour email has been successfully verified. You can now log in to your account.");
-        mailSender.send(message);
+        enqueue(to, "Email Verification Successful",
+                "Dear " + username + ",\n\nYour email has been successfully verified. You can now log in to your account.");
+    }
+
+    public void enqueue(String to, String subject, String text) {
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(to);
+        email.setSubject(subject);
+        email.setBody(text);
+        email.setStatus(EmailStatus.PENDING);
+        email.setCreatedAt(LocalDateTime.now());
+        email.setNextAttemptAt(email.getCreatedAt());
+        emailOutboxRepository.save(email);
     }
 }
@@ -0,0 +1,83 @@
+package com.sp.shop.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.sp.shop.cache.ShopContextResolver;
+import com.sp.shop.dto.BillLineRow;
+import com.sp.shop.dto.BillResponse;
+import com.sp.shop.dto.ProductExportRow;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.repository.BillRepository;
+import com.sp.shop.repository.ProductRepository;
+import com.sp.shop.util.Csv;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Writes a shop's catalog and sales as CSV straight from forward-only cursors. Rows are projections
+ * written as they arrive, so memory use does not depend on how many rows the shop has.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    private final ProductRepository productRepository;
+    private final BillRepository billRepository;
+    private final ShopContextResolver shopContextResolver;
+
+    @Transactional(readOnly = true)
+    public void writeProducts(String username, Writer out) throws IOException {
+        Shop shop = shopContextResolver.resolveShop(username);
+        Csv.writeRow(out, "id", "name", "barcode", "brand", "category", "price", "quantity", "imageUrl");
+        try (Stream<ProductExportRow> rows = productRepository.streamExportRowsByShop(shop)) {
+            rows.forEach(row -> write(out, row.getId(), row.getName(), row.getBarcode(), row.getBrand(),
+                    row.getCategory(), row.getPrice(), row.getQuantity(), row.getImageUrl()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void writeBills(String username, LocalDate from, LocalDate to, Writer out) throws IOException {
+        Shop shop = shopContextResolver.resolveShop(username);
+        Csv.writeRow(out, "id", "customerName", "totalAmount", "createdAt");
+        try (Stream<BillResponse> rows = billRepository.streamResponsesByShop(shop,
+                BillingService.startOf(from), BillingService.endOf(to))) {
+            rows.forEach(bill -> write(out, bill.getId(), bill.getCustomerName(), bill.getTotalAmount(),
+                    bill.getCreatedAt()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void writeBillItems(String username, LocalDate from, LocalDate to, Writer out) throws IOException {
+        Shop shop = shopContextResolver.resolveShop(username);
+        Csv.writeRow(out, "billId", "createdAt", "itemId", "productName", "barcode", "quantity", "pricePerUnit",
+                "totalPrice");
+        try (Stream<BillLineRow> rows = billRepository.streamLinesByShop(shop,
+                BillingService.startOf(from), BillingService.endOf(to))) {
+            rows.filter(row -> row.getItemId() != null)
+                    .forEach(row -> write(out, row.getBillId(), row.getCreatedAt(), row.getItemId(),
+                            row.getProductName(), row.getBarcode(), row.getQuantity(), row.getPricePerUnit(),
+                            row.getTotalPrice()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void write(Writer out, Object... values) {
+        try {
+            Csv.writeRow(out, values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
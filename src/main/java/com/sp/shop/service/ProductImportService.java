@@ -0,0 +1,257 @@
+package com.sp.shop.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sp.shop.cache.BarcodeIndex;
+import com.sp.shop.cache.ShopContextResolver;
+import com.sp.shop.dto.CreateProductRequest;
+import com.sp.shop.dto.ImportReport;
+import com.sp.shop.entity.Product;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.repository.ProductRepository;
+import com.sp.shop.search.ProductSearchIndex;
+import com.sp.shop.util.Csv;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Bulk product upload. The body is read line by line, so uploads of any size use constant memory;
+ * rows are upserted by (shop, barcode) in transactions of {@code shopmate.import.batch-size} rows.
+ * A failing row is reported and skipped, it never aborts the rest of the import or the other rows of its batch.
+ */
+@Service
+public class ProductImportService {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    private static final List<String> CSV_COLUMNS = List.of("name", "barcode", "brand", "category", "price", "quantity", "imageurl");
+
+    private final ProductRepository productRepository;
+    private final ShopContextResolver shopContextResolver;
+    private final BarcodeIndex barcodeIndex;
+    private final ProductSearchIndex productSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public ProductImportService(
+            ProductRepository productRepository,
+            ShopContextResolver shopContextResolver,
+            BarcodeIndex barcodeIndex,
+            ProductSearchIndex productSearchIndex,
+            TransactionTemplate transactionTemplate,
+            EntityManager entityManager,
+            ObjectMapper objectMapper,
+            @Value("${shopmate.import.batch-size:500}") int batchSize,
+            @Value("${shopmate.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.productRepository = productRepository;
+        this.shopContextResolver = shopContextResolver;
+        this.barcodeIndex = barcodeIndex;
+        this.productSearchIndex = productSearchIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    private record Row(long line, CreateProductRequest product) {
+    }
+
+    public ImportReport importProducts(InputStream body, Format format, String username) throws IOException {
+        Shop shop = shopContextResolver.resolveShop(username);
+        ImportReport report = new ImportReport();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        Map<String, Integer> columns = null;
+        List<Row> batch = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && columns == null) {
+                columns = parseHeader(line);
+                continue;
+            }
+
+            report.setProcessed(report.getProcessed() + 1);
+            CreateProductRequest product;
+            try {
+                product = format == Format.CSV ? fromCsv(line, columns) : objectMapper.readValue(line, CreateProductRequest.class);
+                validate(product);
+            } catch (Exception e) {
+                fail(report, lineNumber, null, e.getMessage());
+                continue;
+            }
+
+            batch.add(new Row(lineNumber, product));
+            if (batch.size() >= batchSize) {
+                flush(shop, batch, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(shop, batch, report);
+        }
+        return report;
+    }
+
+    /**
+     * Writes a batch in one transaction. If the database rejects it, the rows are retried one per
+     * transaction, so only the rows that fail on their own are reported and the rest are kept.
+     */
+    private void flush(Shop shop, List<Row> batch, ImportReport report) {
+        try {
+            upsert(shop, batch, report);
+        } catch (RuntimeException batchFailure) {
+            for (Row row : batch) {
+                try {
+                    upsert(shop, List.of(row), report);
+                } catch (RuntimeException e) {
+                    fail(report, row.line(), row.product().getBarcode(),
+                            NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                }
+            }
+        }
+    }
+
+    private void upsert(Shop shop, List<Row> rows, ImportReport report) {
+        List<String> barcodes = rows.stream().map(row -> row.product().getBarcode()).distinct().toList();
+
+        long[] counts = new long[2];  // inserted, updated
+        List<Product> saved = transactionTemplate.execute(status -> {
+            Map<String, Product> products = new LinkedHashMap<>();
+            productRepository.findByShopAndBarcodeIn(shop, barcodes)
+                    .forEach(product -> products.putIfAbsent(product.getBarcode(), product));
+
+            // Rows are applied top to bottom, so a later row for the same barcode wins
+            for (Row row : rows) {
+                CreateProductRequest request = row.product();
+                Product product = products.get(request.getBarcode());
+                if (product == null) {
+                    product = new Product();
+                    product.setBarcode(request.getBarcode());
+                    product.setShop(shop);
+                    products.put(request.getBarcode(), product);
+                    counts[0]++;
+                } else {
+                    counts[1]++;
+                }
+                product.setName(request.getName());
+                product.setBrand(request.getBrand());
+                product.setCategory(request.getCategory());
+                product.setPrice(request.getPrice());
+                product.setQuantity(request.getQuantity());
+                product.setImageUrl(request.getImageUrl());
+            }
+            List<Product> result = productRepository.saveAll(products.values());
+            entityManager.flush();
+            // One version per batch, taken after the rows are written so the shop row is locked only briefly
+            productRepository.stampCatalogVersion(shop.getId(), result.stream().map(Product::getId).toList());
+            entityManager.clear();  // keep the persistence context from growing across batches
+            return result;
+        });
+
+        report.setInserted(report.getInserted() + counts[0]);
+        report.setUpdated(report.getUpdated() + counts[1]);
+        for (Product product : saved) {
+            barcodeIndex.evict(shop.getId(), product.getBarcode());
+            productSearchIndex.index(product);
+        }
+    }
+
+    private Map<String, Integer> parseHeader(String line) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> header = Csv.parseLine(line);
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i).trim().toLowerCase(Locale.ROOT).replace("_", "");
+            if (CSV_COLUMNS.contains(column)) {
+                columns.put(column, i);
+            }
+        }
+        if (!columns.containsKey("barcode") || !columns.containsKey("name")) {
+            throw new IllegalArgumentException("CSV header must contain at least name and barcode columns");
+        }
+        return columns;
+    }
+
+    private CreateProductRequest fromCsv(String line, Map<String, Integer> columns) {
+        List<String> fields = Csv.parseLine(line);
+        CreateProductRequest product = new CreateProductRequest();
+        product.setName(field(fields, columns, "name"));
+        product.setBarcode(field(fields, columns, "barcode"));
+        product.setBrand(field(fields, columns, "brand"));
+        product.setCategory(field(fields, columns, "category"));
+        product.setImageUrl(field(fields, columns, "imageurl"));
+        String price = field(fields, columns, "price");
+        String quantity = field(fields, columns, "quantity");
+        try {
+            product.setPrice(price != null ? Double.parseDouble(price) : 0);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price: " + price);
+        }
+        try {
+            product.setQuantity(quantity != null ? Integer.parseInt(quantity) : 0);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid quantity: " + quantity);
+        }
+        return product;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void validate(CreateProductRequest product) {
+        if (product.getBarcode() == null || product.getBarcode().isBlank()) {
+            throw new IllegalArgumentException("Barcode is required");
+        }
+        if (product.getName() == null || product.getName().isBlank()) {
+            throw new IllegalArgumentException("Name is required");
+        }
+        if (product.getPrice() < 0) {
+            throw new IllegalArgumentException("Price must not be negative");
+        }
+        if (product.getQuantity() < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative");
+        }
+    }
+
+    private void fail(ImportReport report, long line, String barcode, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new ImportReport.RowError(line, barcode, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+}
@@ -1,18 +1,28 @@
 package com.sp.shop.service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.sp.shop.cache.BarcodeIndex;
+import com.sp.shop.cache.ShopContextResolver;
 import com.sp.shop.controller.UpdateProductRequest;
+import com.sp.shop.dto.CatalogChanges;
 import com.sp.shop.dto.CreateProductRequest;
 import com.sp.shop.entity.Product;
+import com.sp.shop.entity.ProductTombstone;
 import com.sp.shop.entity.Shop;
+import com.sp.shop.push.StockUpdateBroadcaster;
 import com.sp.shop.repository.ProductRepository;
+import com.sp.shop.repository.ProductTombstoneRepository;
 import com.sp.shop.repository.ShopRepository;
-import com.sp.shop.repository.UserRepository;
-import com.sp.shop.entity.User;
+import com.sp.shop.search.ProductSearchIndex;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
@@ -22,12 +32,16 @@ import org.springframework.security.access.AccessDeniedException;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ShopContextResolver shopContextResolver;
+    private final BarcodeIndex barcodeIndex;
+    private final ProductSearchIndex productSearchIndex;
     private final ShopRepository shopRepository;
-    private final UserRepository userRepository;
+    private final ProductTombstoneRepository productTombstoneRepository;
+    private final StockUpdateBroadcaster stockUpdateBroadcaster;
 
+    @Transactional
     public Product addProduct(CreateProductRequest request, String username) {
-        User user = userRepository.findByUsername(username).orElseThrow();
-        Shop shop = shopRepository.findByOwner(user).orElseThrow();
+        Shop shop = shopContextResolver.resolveShop(username);
 
         Product product = new Product();
         product.setName(request.getName());
@@ -39,25 +53,53 @@ public class ProductService {
         product.setImageUrl(request.getImageUrl());
         product.setShop(shop);
 
-        return productRepository.save(product);
+        // The version is taken after the row is written: the shop row stays locked from then until commit
+        Product saved = productRepository.saveAndFlush(product);
+        saved.setCatalogVersion(shopRepository.nextCatalogVersion(shop.getId()));
+        barcodeIndex.evict(shop.getId(), saved.getBarcode());
+        productSearchIndex.index(saved);
+        return saved;
     }
 
     public List<Product> getProductsForUser(String username) {
-        User user = userRepository.findByUsername(username).orElseThrow();
-        Shop shop = shopRepository.findByOwner(user).orElseThrow();
+        Shop shop = shopContextResolver.resolveShop(username);
         return productRepository.findByShop(shop);
     }
 
-    public Optional<Product> getByBarcode(String barcode) {
-        return productRepository.findByBarcode(barcode);
+    public SseEmitter subscribeToStockUpdates(String username) {
+        Shop shop = shopContextResolver.resolveShop(username);
+        return stockUpdateBroadcaster.subscribe(shop.getId());
     }
 
+    /**
+     * Weak ETag for every view of the shop's catalog, built from the shop id and catalog version
+     * with one primary-key lookup; no products are loaded. It is weak because the same version is
+     * served as JSON, Smile or CBOR, gzipped or not, and Tomcat will not compress a strongly tagged body.
+     */
+    public String getCatalogETag(String username) {
+        Shop shop = shopContextResolver.resolveShop(username);
+        return "W/\"" + shop.getId() + "-" + shopRepository.findCatalogVersion(shop.getId()) + "\"";
+    }
+
+    public Optional<Product> getByBarcode(String barcode, String username) {
+        Shop shop = shopContextResolver.resolveShop(username);
+
+        Optional<Product> indexed = barcodeIndex.get(shop.getId(), barcode);
+        if (indexed.isPresent()) {
+            return indexed;
+        }
+
+        Optional<Product> product = productRepository.findByShopAndBarcode(shop, barcode);
+        product.ifPresent(barcodeIndex::put);
+        return product;
+    }
+
+    @Transactional
     public Product updateProduct(Long productId, UpdateProductRequest request, String username) {
         Product product = productRepository.findById(productId).orElseThrow(() -> new RuntimeException("Product not found"));
-        User user = userRepository.findByUsername(username).orElseThrow();
         
         // Only shop owner who owns the product's shop can update
-        if (!product.getShop().getOwner().getUsername().equals(user.getUsername())) {
+        if (!product.getShop().getOwner().getUsername().equals(username)) {
             throw new AccessDeniedException("Unauthorized to edit this product");
         }
     
@@ -67,25 +109,57 @@ public class ProductService {
         product.setPrice(request.getPrice());
         product.setQuantity(request.getQuantity());
         product.setImageUrl(request.getImageUrl());
-    
-        return productRepository.save(product);
+
+        // Product row first, shop row last, in the same order checkout locks them
+        Product saved = productRepository.saveAndFlush(product);
+        saved.setCatalogVersion(shopRepository.nextCatalogVersion(saved.getShop().getId()));
+        barcodeIndex.evict(saved.getShop().getId(), saved.getBarcode());
+        productSearchIndex.index(saved);
+        return saved;
     }
 
+    @Transactional
     public void deleteProduct(Long productId, String username) {
         Product product = productRepository.findById(productId).orElseThrow(() -> new RuntimeException("Product not found"));
-        User user = userRepository.findByUsername(username).orElseThrow();
     
-        if (!product.getShop().getOwner().getUsername().equals(user.getUsername())) {
+        if (!product.getShop().getOwner().getUsername().equals(username)) {
             throw new AccessDeniedException("Unauthorized to delete this product");
         }
     
         productRepository.delete(product);
+        productRepository.flush();
+        long catalogVersion = shopRepository.nextCatalogVersion(product.getShop().getId());
+        productTombstoneRepository.save(new ProductTombstone(product.getId(), product.getShop().getId(),
+                product.getBarcode(), catalogVersion));
+        barcodeIndex.evict(product.getShop().getId(), product.getBarcode());
+        productSearchIndex.remove(product.getShop().getId(), product.getId());
     }
 
-    public List<Product> searchProducts(String query) {
-        return productRepository.findByNameContainingIgnoreCaseOrBrandContainingIgnoreCase(query, query);
+    /**
+     * Products written and deleted after catalog version {@code since}, or the whole catalog when
+     * {@code since} is null. The version is read first, so every change up to it is in the result.
+     */
+    @Transactional(readOnly = true)
+    public CatalogChanges getChangesSince(Long since, String username) {
+        Shop shop = shopContextResolver.resolveShop(username);
+        long version = shopRepository.findCatalogVersion(shop.getId());
+        long after = since != null ? since : -1;
+        return new CatalogChanges(version,
+                productRepository.findByShopAndCatalogVersionGreaterThanOrderByCatalogVersionAscIdAsc(shop, after),
+                since != null
+                        ? productTombstoneRepository.findByShopIdAndCatalogVersionGreaterThanOrderByCatalogVersion(shop.getId(), after)
+                        : List.of());
     }
 
-    
-    
+    // Ranked, typo-tolerant search over the caller's shop, served from the in-memory index
+    public List<Product> searchProducts(String query, String username, int page, int size) {
+        Shop shop = shopContextResolver.resolveShop(username);
+        List<Long> ids = productSearchIndex.search(shop, query, page, size);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> products = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream().map(products::get).filter(product -> product != null).toList();
+    }
 }
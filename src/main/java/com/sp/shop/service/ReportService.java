@@ -0,0 +1,89 @@
+package com.sp.shop.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.sp.shop.cache.ShopContextResolver;
+import com.sp.shop.dto.DailySalesPoint;
+import com.sp.shop.dto.TopProductRow;
+import com.sp.shop.entity.DailySales;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.repository.DailyProductSalesRepository;
+import com.sp.shop.repository.DailySalesRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Sales reports served from the daily rollups that checkout maintains; no query here touches
+ * bills or bill items.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReportService {
+
+    public static final int MAX_RANGE_DAYS = 366;
+    public static final int MAX_TOP_PRODUCTS = 100;
+
+    private final ShopContextResolver shopContextResolver;
+    private final DailySalesRepository dailySalesRepository;
+    private final DailyProductSalesRepository dailyProductSalesRepository;
+
+    /**
+     * Bills, units and revenue for every day in the inclusive range [from, to], with zero rows for
+     * days without sales so charts get a continuous series.
+     */
+    @Transactional(readOnly = true)
+    public List<DailySalesPoint> getDailySales(String username, LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        Shop shop = shopContextResolver.resolveShop(username);
+
+        Map<LocalDate, DailySales> byDay = new HashMap<>();
+        for (DailySales day : dailySalesRepository.findByShopIdAndSalesDateBetweenOrderBySalesDate(shop.getId(), from, to)) {
+            byDay.put(day.getSalesDate(), day);
+        }
+
+        List<DailySalesPoint> points = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            DailySales day = byDay.get(date);
+            points.add(day != null
+                    ? new DailySalesPoint(date, day.getBillCount(), day.getUnitsSold(), day.getRevenue())
+                    : new DailySalesPoint(date, 0, 0, 0));
+        }
+        return points;
+    }
+
+    /**
+     * Best-selling products over the inclusive range [from, to], ranked by units sold or, when
+     * {@code byRevenue} is set, by revenue.
+     */
+    @Transactional(readOnly = true)
+    public List<TopProductRow> getTopProducts(String username, LocalDate from, LocalDate to, int limit,
+            boolean byRevenue) {
+        checkRange(from, to);
+        if (limit < 1 || limit > MAX_TOP_PRODUCTS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_TOP_PRODUCTS);
+        }
+        Shop shop = shopContextResolver.resolveShop(username);
+        PageRequest page = PageRequest.of(0, limit);
+        return byRevenue
+                ? dailyProductSalesRepository.findTopByRevenue(shop.getId(), from, to, page)
+                : dailyProductSalesRepository.findTopByUnits(shop.getId(), from, to, page);
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Date range must not exceed " + MAX_RANGE_DAYS + " days");
+        }
+    }
+}
@@ -1,26 +1,50 @@
 package com.sp.shop.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.sp.shop.cache.ShopContextResolver;
+import com.sp.shop.dto.UserPage;
+import com.sp.shop.dto.UserResponseDTO;
+import com.sp.shop.dto.UserRoleRow;
 import com.sp.shop.entity.Role;
+import com.sp.shop.entity.Shop;
 import com.sp.shop.entity.User;
+import com.sp.shop.exception.PasswordHashingBusyException;
+import com.sp.shop.metrics.StageTimer;
+import com.sp.shop.repository.ShopRepository;
 import com.sp.shop.repository.UserRepository;
 import com.sp.shop.security.JwtUtil;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 import java.util.UUID;
 
 @Service
 public class UserService {
 
+    public static final int MAX_PAGE_SIZE = 500;
+
 	@Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ShopRepository shopRepository;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -29,6 +53,15 @@ public class UserService {
     
     @Autowired
     private EmailService emailService;
+
+    @Autowired
+    private ShopContextResolver shopContextResolver;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
     
 
     // @Autowired
@@ -46,7 +79,14 @@ public class UserService {
             throw new RuntimeException("Username already taken");
         }
 
-        user.setPassword(passwordEncoder.encode(user.getPassword()));  // Encrypt password
+        // Hash only once the duplicate checks passed, and before the transaction opens, so waiting for the
+        // hashing pool holds no database connection; a racing signup is still stopped by the unique keys
+        String passwordHash = passwordEncoder.encode(user.getPassword());
+        return transactionTemplate.execute(status -> saveNewUser(user, passwordHash));
+    }
+
+    private User saveNewUser(User user, String passwordHash) {
+        user.setPassword(passwordHash);
         user.setRoles(Set.of(Role.ROLE_STAFF));  // Default user role
         user.setVerified(false);  // Not verified yet
 
@@ -57,7 +97,7 @@ public class UserService {
         User savedUser = userRepository.save(user);
 
 
-        // Send email notification
+        // Queue email notification; it commits with the user row and is sent in the background
         emailService.sendVerificationEmail(user.getEmail(), verificationCode);
          //Send email notification
 //        emailService.sendVerificationEmail(user.getEmail(), verificationCode);
@@ -71,6 +111,7 @@ public class UserService {
         return savedUser;
     }
     
+    @Transactional
     public String verifyUser(String email, String code) {
         Optional<User> userOptional = userRepository.findByEmail(email);
 
@@ -102,6 +143,7 @@ public class UserService {
         }
     }
 
+    @Transactional
     public String resendVerificationCode(String email) {
         Optional<User> userOptional = userRepository.findByEmail(email);
 
@@ -130,25 +172,57 @@ public class UserService {
         return userRepository.findByUsername(username).orElse(null);
     }
 
+    // Stages (user-lookup, password-check, rehash, token) in shopmate.auth.login.stage, outcome in shopmate.auth.login
     public String loginUser(String email, String password) {
-        Optional<User> optionalUser = userRepository.findByEmail(email);
-
-        if (optionalUser.isPresent()) {
-            User user = optionalUser.get();
-            if (!user.isVerified()) {
-                throw new RuntimeException("Please verify your email before logging in.");
-            }
-            if (passwordEncoder.matches(password, user.getPassword())) {
-                return jwtUtil.generateToken(user.getUsername());  // Return JWT if credentials match
+        StageTimer timer = StageTimer.start(meterRegistry, "shopmate.auth.login");
+        String outcome = "error";
+        try {
+            Optional<User> optionalUser = userRepository.findByEmail(email);
+            timer.stage("user-lookup");
+
+            if (optionalUser.isPresent()) {
+                User user = optionalUser.get();
+                if (!user.isVerified()) {
+                    outcome = "unverified";
+                    throw new RuntimeException("Please verify your email before logging in.");
+                }
+                boolean matches = passwordEncoder.matches(password, user.getPassword());
+                timer.stage("password-check");
+                if (matches) {
+                    rehashIfCostChanged(user, password);
+                    timer.stage("rehash");
+                    Long shopId = shopRepository.findByOwner(user).map(Shop::getId).orElse(null);
+                    String token = jwtUtil.generateToken(user.getUsername(), user.getRoles(), shopId);  // Return JWT if credentials match
+                    timer.shop(shopId).stage("token");
+                    outcome = "success";
+                    return token;
+                }
             }
+            outcome = "bad-credentials";
+            throw new RuntimeException("Invalid email or password!");
+        } finally {
+            timer.finish(outcome);
+        }
+    }
+    
+    // Best effort: a busy hashing pool only postpones the rehash to the next login
+    private void rehashIfCostChanged(User user, String password) {
+        if (!passwordEncoder.upgradeEncoding(user.getPassword())) {
+            return;
+        }
+        try {
+            user.setPassword(passwordEncoder.encode(password));
+            userRepository.save(user);
+        } catch (PasswordHashingBusyException e) {
+            // keep the old hash; it still matches
         }
-        throw new RuntimeException("Invalid email or password!");
     }
     
     public User updateUser(String username, User updatedUser) {
         Optional<User> optionalUser = userRepository.findByUsername(username);
         if (optionalUser.isPresent()) {
             User existingUser = optionalUser.get();
+            String previousUsername = existingUser.getUsername();
 
             // Update only allowed fields
             existingUser.setUsername(updatedUser.getUsername());  // Fixed this line
@@ -158,7 +232,10 @@ public class UserService {
                 existingUser.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
             }
 
-            return userRepository.save(existingUser);
+            User saved = userRepository.save(existingUser);
+            // Once saved, so a request in between cannot cache the old user again
+            shopContextResolver.evict(previousUsername);
+            return saved;
         }
         return null;
     }
@@ -167,6 +244,7 @@ public class UserService {
         Optional<User> optionalUser = userRepository.findById(id);
         if (optionalUser.isPresent()) {
             User existingUser = optionalUser.get();
+            String previousUsername = existingUser.getUsername();
 
             // Update only allowed fields
             if (updatedUser.getUsername() != null && !updatedUser.getUsername().isEmpty()) {
@@ -195,7 +273,9 @@ public class UserService {
                 existingUser.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
             }
 
-            return userRepository.save(existingUser);
+            User saved = userRepository.save(existingUser);
+            shopContextResolver.evict(previousUsername);
+            return saved;
         }
         return null;
     }
@@ -204,6 +284,7 @@ public class UserService {
         Optional<User> optionalUser = userRepository.findByUsername(username);
         if (optionalUser.isPresent()) {
             userRepository.delete(optionalUser.get());
+            shopContextResolver.evict(optionalUser.get().getUsername());
             return true;
         }
         return false;
@@ -213,6 +294,7 @@ public class UserService {
         Optional<User> optionalUser = userRepository.findById(id);
         if (optionalUser.isPresent()) {
             userRepository.delete(optionalUser.get());
+            shopContextResolver.evict(optionalUser.get().getUsername());
             return true;
         }
         return false;
@@ -222,11 +304,80 @@ public class UserService {
         return userRepository.findAll();
     }
     
-    public org.springframework.data.domain.Page<User> getAllUsers(org.springframework.data.domain.Pageable pageable) {
-        return userRepository.findAll(pageable);
+    @Transactional(readOnly = true)
+    public Page<UserResponseDTO> getAllUsers(Pageable pageable) {
+        return attachRoles(userRepository.findResponses(pageable));
     }
     
-    public org.springframework.data.domain.Page<User> searchUsers(String searchTerm, org.springframework.data.domain.Pageable pageable) {
-        return userRepository.findByUsernameContainingOrEmailContainingOrMobileContaining(searchTerm, searchTerm, searchTerm, pageable);
+    // Users whose username, email or mobile starts with searchTerm
+    @Transactional(readOnly = true)
+    public Page<UserResponseDTO> searchUsers(String searchTerm, Pageable pageable) {
+        return attachRoles(userRepository.searchResponses(prefixPattern(searchTerm), pageable));
+    }
+
+    /**
+     * One page of users in id order, optionally only those whose username, email or mobile starts with
+     * {@code search}. Pass the previous page's {@code nextCursor} to continue; no total is counted.
+     */
+    @Transactional(readOnly = true)
+    public UserPage getUserPage(String search, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        PageRequest page = PageRequest.of(0, size + 1);  // one extra row tells us whether there is a next page
+        long afterId = decodeCursor(cursor);
+
+        List<UserResponseDTO> users;
+        if (search == null) {
+            users = userRepository.findResponsesAfter(afterId, page);
+        } else {
+            // The first size + 1 matches overall are among the first size + 1 of each column
+            String prefix = prefixPattern(search);
+            TreeMap<Long, UserResponseDTO> matches = new TreeMap<>();
+            userRepository.findResponsesByUsernamePrefixAfter(prefix, afterId, page).forEach(user -> matches.put(user.getId(), user));
+            userRepository.findResponsesByEmailPrefixAfter(prefix, afterId, page).forEach(user -> matches.put(user.getId(), user));
+            userRepository.findResponsesByMobilePrefixAfter(prefix, afterId, page).forEach(user -> matches.put(user.getId(), user));
+            users = matches.values().stream().limit(size + 1).toList();
+        }
+
+        String nextCursor = null;
+        if (users.size() > size) {
+            users = users.subList(0, size);
+            nextCursor = String.valueOf(users.get(size - 1).getId());
+        }
+        attachRoles(users);
+        return new UserPage(users, nextCursor);
+    }
+
+    // One query for the roles of every user on the page; a user with several roles shows the highest one
+    private <T extends Iterable<UserResponseDTO>> T attachRoles(T users) {
+        List<Long> ids = new ArrayList<>();
+        users.forEach(user -> ids.add(user.getId()));
+        if (ids.isEmpty()) {
+            return users;
+        }
+        Map<Long, Role> roles = new HashMap<>();
+        for (UserRoleRow row : userRepository.findRolesByUserIdIn(ids)) {
+            roles.merge(row.getUserId(), row.getRole(), (a, b) -> a.compareTo(b) <= 0 ? a : b);
+        }
+        users.forEach(user -> {
+            Role role = roles.get(user.getId());
+            user.setRole(role != null ? role.name() : null);
+        });
+        return users;
+    }
+
+    // LIKE wildcards in the search term match literally; the queries declare '!' as the escape character
+    private static String prefixPattern(String searchTerm) {
+        return searchTerm.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+
+    private static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
     }
 }
\ No newline at end of file
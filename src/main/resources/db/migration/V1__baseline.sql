@@ -0,0 +1,18 @@
+-- Schema as created by spring.jpa.hibernate.ddl-auto=update before migrations existed. Existing databases
+-- are baselined at this version (spring.flyway.baseline-on-migrate) and run everything after it; new ones
+-- start from it. Never edit this file: every later change goes in a migration of its own.
+
+create table bill (total_amount float(53) not null, created_at datetime(6), id bigint not null auto_increment, shop_id bigint, customer_name varchar(255), primary key (id)) engine=InnoDB;
+create table bill_item (price_per_unit float(53) not null, quantity integer not null, total_price float(53) not null, bill_id bigint, id bigint not null auto_increment, barcode varchar(255), product_name varchar(255), primary key (id)) engine=InnoDB;
+create table product (price float(53) not null, quantity integer not null, id bigint not null auto_increment, shop_id bigint, barcode varchar(255), brand varchar(255), category varchar(255), image_url varchar(255), name varchar(255), primary key (id)) engine=InnoDB;
+create table shop (id bigint not null auto_increment, address varchar(255), contact_number varchar(255), name varchar(255), owner_username varchar(255), primary key (id)) engine=InnoDB;
+create table user_roles (user_id bigint not null, roles enum ('ROLE_ADMIN','ROLE_SHOP_OWNER','ROLE_STAFF')) engine=InnoDB;
+create table users (is_verified bit not null, id bigint not null auto_increment, mobile varchar(15) not null, username varchar(50) not null, email varchar(255) not null, password varchar(255) not null, verification_code varchar(255), primary key (id)) engine=InnoDB;
+alter table shop add constraint UKmbsle7h1of1xpu95shfi3gve2 unique (owner_username);
+alter table users add constraint UK6dotkott2kjsp8vw4d0m25fb7 unique (email);
+alter table users add constraint UKr43af9ap4edm43mmtq01oddj6 unique (username);
+alter table bill add constraint FKiqbfni4lt459aqex9ku51vxex foreign key (shop_id) references shop (id);
+alter table bill_item add constraint FKcf0kpt07c9onbtvnttajk3skx foreign key (bill_id) references bill (id);
+alter table product add constraint FK94hgg8hlqfqfnt3dag950vm7n foreign key (shop_id) references shop (id);
+alter table shop add constraint FKnhx2wd2x857sqnrs1y7y9lg2i foreign key (owner_username) references users (username);
+alter table user_roles add constraint FKhfh9dx7w3ubf1co1vdev94g3f foreign key (user_id) references users (id);
@@ -0,0 +1,2 @@
+-- Signup and verification emails are queued here in the registering transaction and sent by EmailDispatcher
+create table email_outbox (attempts integer not null, created_at datetime(6), id bigint not null auto_increment, next_attempt_at datetime(6), sent_at datetime(6), last_error varchar(1000), body varchar(4000), recipient varchar(255), subject varchar(255), status enum ('FAILED','PENDING','SENT'), primary key (id)) engine=InnoDB;
@@ -0,0 +1,11 @@
+-- Bill, BillItem and Product ids come from pooled sequences (allocation size 50). MySQL has no sequences,
+-- so Hibernate keeps each one in a single-row table. The id columns keep auto_increment, which still
+-- accepts the explicit ids Hibernate now sends.
+
+-- The pooled optimizer hands out (next_val - 49) .. next_val, so start a full block past the existing ids
+create table bill_seq (next_val bigint) engine=InnoDB;
+insert into bill_seq select coalesce(max(id), 0) + 51 from bill;
+create table bill_item_seq (next_val bigint) engine=InnoDB;
+insert into bill_item_seq select coalesce(max(id), 0) + 51 from bill_item;
+create table product_seq (next_val bigint) engine=InnoDB;
+insert into product_seq select coalesce(max(id), 0) + 51 from product;
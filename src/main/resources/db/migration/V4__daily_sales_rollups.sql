@@ -0,0 +1,4 @@
+-- Per-shop daily totals and per-product daily sales, upserted at checkout and read by the report endpoints.
+-- Reports range over dates within one shop, so shop_id leads both keys.
+create table daily_sales (revenue float(53) not null, sales_date date not null, bill_count bigint not null, shop_id bigint not null, units_sold bigint not null, primary key (shop_id, sales_date)) engine=InnoDB;
+create table daily_product_sales (revenue float(53) not null, sales_date date not null, shop_id bigint not null, units_sold bigint not null, barcode varchar(255) not null, product_name varchar(255), primary key (shop_id, sales_date, barcode)) engine=InnoDB;
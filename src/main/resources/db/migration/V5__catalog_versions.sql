@@ -0,0 +1,7 @@
+-- Per-shop catalog versions for delta sync and conditional GETs. Every product change stamps the product
+-- with the shop's next version; deleted products leave a tombstone so registers can drop them.
+alter table shop add column catalog_version bigint default 0 not null;
+alter table product add column catalog_version bigint default 0 not null;
+create table product_tombstone (catalog_version bigint not null, product_id bigint not null, shop_id bigint, barcode varchar(255), primary key (product_id)) engine=InnoDB;
+create index idx_product_shop_catalog_version on product (shop_id, catalog_version);
+create index idx_tombstone_shop_catalog_version on product_tombstone (shop_id, catalog_version);
@@ -0,0 +1,16 @@
+-- Indexes for the per-shop lookups every request makes. Each one leads with the column the
+-- queries filter on, so InnoDB can seek instead of scanning the table.
+
+-- Checkout, barcode scans and imports look products up by (shop, barcode); a barcode is unique
+-- within a shop. Fails if a shop already has duplicate barcodes, which must be merged first.
+create unique index ux_product_shop_barcode on product (shop_id, barcode);
+
+-- Bill history is read newest first per shop and paged by (created_at, id)
+create index idx_bill_shop_created on bill (shop_id, created_at, id);
+
+-- Items are loaded per bill or for a page of bill ids
+create index idx_bill_item_bill on bill_item (bill_id);
+
+-- The email dispatcher claims due PENDING rows in id order
+create index idx_email_outbox_due on email_outbox (status, next_attempt_at, id);
+
@@ -0,0 +1,3 @@
+-- User search matches a prefix of username, email or mobile. Username and email already have
+-- unique indexes; with this one MySQL can answer the search as a union of three index ranges.
+create index idx_users_mobile on users (mobile);
@@ -0,0 +1,3 @@
+-- The dispatcher marks the rows it is sending IN_FLIGHT and commits before talking to SMTP; next_attempt_at
+-- then holds the lease, after which another node may take the rows over
+alter table email_outbox modify status enum ('FAILED','IN_FLIGHT','PENDING','SENT');
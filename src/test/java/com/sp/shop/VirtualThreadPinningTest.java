@@ -0,0 +1,75 @@
+package com.sp.shop;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+
+/**
+ * On Java 21 a virtual thread that blocks inside a {@code synchronized} method or block stays pinned to
+ * its carrier, and a handful of those stall every request. Scans the application's compiled classes and
+ * fails on any monitor, so shared state is guarded with java.util.concurrent locks instead.
+ */
+class VirtualThreadPinningTest {
+
+    @Test
+    void applicationClasses_shouldNotUseMonitors() throws IOException, URISyntaxException {
+        Path classes = Path.of(ShopMateApplication.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<String> monitors = new ArrayList<>();
+        int scanned = 0;
+        try (Stream<Path> files = Files.walk(classes)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".class")).toList()) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    new ClassReader(in).accept(new MonitorFinder(monitors), ClassReader.SKIP_DEBUG);
+                }
+                scanned++;
+            }
+        }
+        assertTrue(scanned > 0, "no classes found under " + classes);
+        assertTrue(monitors.isEmpty(), () -> "use a ReentrantLock instead of synchronized in " + monitors);
+    }
+
+    private static final class MonitorFinder extends ClassVisitor {
+
+        private final List<String> monitors;
+        private String className;
+
+        MonitorFinder(List<String> monitors) {
+            super(Opcodes.ASM9);
+            this.monitors = monitors;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            className = name.replace('/', '.');
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            String method = className + "." + name;
+            if ((access & Opcodes.ACC_SYNCHRONIZED) != 0) {
+                monitors.add(method);
+            }
+            return new MethodVisitor(Opcodes.ASM9) {
+                @Override
+                public void visitInsn(int opcode) {
+                    if (opcode == Opcodes.MONITORENTER) {
+                        monitors.add(method);
+                    }
+                }
+            };
+        }
+    }
+}
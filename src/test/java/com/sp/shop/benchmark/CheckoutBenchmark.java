@@ -0,0 +1,134 @@
+package com.sp.shop.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sp.shop.cache.BarcodeIndex;
+import com.sp.shop.cache.ShopContextResolver;
+import com.sp.shop.dto.BillRequest;
+import com.sp.shop.dto.StockReservation;
+import com.sp.shop.entity.Bill;
+import com.sp.shop.entity.Product;
+import com.sp.shop.entity.Role;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.entity.User;
+import com.sp.shop.repository.BillItemRepository;
+import com.sp.shop.repository.BillRepository;
+import com.sp.shop.repository.DailySalesRepository;
+import com.sp.shop.repository.ProductRepository;
+import com.sp.shop.repository.ShopRepository;
+import com.sp.shop.repository.UserRepository;
+import com.sp.shop.service.BillingService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * BillingService.createBill over in-memory repositories: cart merging, product resolution, stock
+ * reservation bookkeeping, pricing and the checkout metrics, with no database time in the score.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutBenchmark {
+
+    private static final String USERNAME = "owner";
+    private static final int CATALOG = 1_000;
+
+    @Param({ "1", "10", "50" })
+    public int cartLines;
+
+    private BillingService billingService;
+    private BillRequest request;
+
+    @Setup
+    public void setUp() {
+        User owner = new User(1L, USERNAME, "secret", "owner@example.com", Role.ROLE_SHOP_OWNER);
+        Shop shop = new Shop();
+        shop.setId(42L);
+        shop.setName("Corner Store");
+        shop.setOwner(owner);
+
+        Map<String, Product> products = new HashMap<>();
+        for (int i = 0; i < CATALOG; i++) {
+            Product product = new Product();
+            product.setId((long) i);
+            product.setName("Product " + i);
+            product.setBarcode(String.format("890%010d", i));
+            product.setPrice(10 + (i % 500) * 0.25);
+            product.setQuantity(Integer.MAX_VALUE);
+            product.setShop(shop);
+            products.put(product.getBarcode(), product);
+        }
+
+        AtomicLong catalogVersion = new AtomicLong();
+        ProductRepository productRepository = InMemoryRepositories.of(ProductRepository.class, Map.of(
+                // Stock is never short here; the real decrement is a single JDBC batch and one read back
+                "reserveStock", args -> {
+                    Map<String, StockReservation> reserved = new HashMap<>();
+                    for (Object barcode : ((Map<?, ?>) args[1]).keySet()) {
+                        Product product = products.get(barcode);
+                        if (product != null) {
+                            reserved.put(product.getBarcode(), new StockReservation(product.getId(),
+                                    product.getBarcode(), product.getName(), product.getPrice(), true));
+                        }
+                    }
+                    return reserved;
+                },
+                "stampCatalogVersion", args -> catalogVersion.incrementAndGet()));
+        ShopRepository shopRepository = InMemoryRepositories.of(ShopRepository.class, Map.of(
+                "findByOwner", args -> Optional.of(shop)));
+        UserRepository userRepository = InMemoryRepositories.of(UserRepository.class, Map.of(
+                "findByUsername", args -> Optional.of(owner)));
+        BillRepository billRepository = InMemoryRepositories.of(BillRepository.class, Map.of(
+                "saveAndFlush", args -> args[0]));
+        DailySalesRepository dailySalesRepository = InMemoryRepositories.of(DailySalesRepository.class, Map.of(
+                "addBill", args -> null));
+
+        billingService = new BillingService(
+                productRepository,
+                new ShopContextResolver(userRepository, shopRepository, 10_000, Duration.ofMinutes(10)),
+                billRepository,
+                new BarcodeIndex(50_000, Duration.ofMinutes(10)),
+                InMemoryRepositories.of(BillItemRepository.class, Map.of()),
+                dailySalesRepository,
+                shopRepository,
+                new SimpleMeterRegistry());
+
+        request = new BillRequest();
+        request.setCustomerName("Walk-in");
+        List<BillRequest.CartItem> items = new ArrayList<>();
+        for (int i = 0; i < cartLines; i++) {
+            BillRequest.CartItem item = new BillRequest.CartItem();
+            item.setBarcode(String.format("890%010d", i * 7 % CATALOG));
+            item.setQuantity(1 + i % 3);
+            items.add(item);
+        }
+        request.setItems(items);
+    }
+
+    @Benchmark
+    public Bill createBill() {
+        return billingService.createBill(request, USERNAME);
+    }
+}
@@ -0,0 +1,111 @@
+package com.sp.shop.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checkouts per second when {@code clients} checkouts arrive together, served either by a pool of 200
+ * platform threads (Tomcat's default maximum) or by one virtual thread each. A checkout is modelled as the
+ * nine statements BillingServiceTest allows, each a blocking round trip to a remote database, made while
+ * holding one of {@code connections} pooled connections. 50 connections is what the virtual profile
+ * configures; 1000 takes the pool out of the picture so only the thread model is compared.
+ * <p>
+ * The virtual runs need a Java 21 runtime; on older JDKs their setup fails and JMH moves on.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutThreadingBenchmark {
+
+    private static final int PLATFORM_THREADS = 200;
+    private static final int ROUND_TRIPS = 9;
+
+    @Param({ "50", "200", "1000" })
+    public int clients;
+
+    @Param({ "platform", "virtual" })
+    public String threads;
+
+    @Param({ "50", "1000" })
+    public int connections;
+
+    @Param({ "2000" })
+    public long roundTripMicros;
+
+    private ExecutorService server;
+    private Semaphore connectionPool;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Checkouts {
+        public long checkouts;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        server = "virtual".equals(threads) ? virtualThreadPerTask() : Executors.newFixedThreadPool(PLATFORM_THREADS);
+        connectionPool = new Semaphore(connections, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.shutdownNow();
+    }
+
+    @Benchmark
+    public void checkoutBurst(Checkouts counter) throws Exception {
+        List<Future<?>> checkouts = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            checkouts.add(server.submit(this::checkout));
+        }
+        for (Future<?> checkout : checkouts) {
+            checkout.get();
+        }
+        counter.checkouts += clients;
+    }
+
+    private Void checkout() throws InterruptedException {
+        connectionPool.acquire();
+        try {
+            for (int i = 0; i < ROUND_TRIPS; i++) {
+                // Sleeping parks a virtual thread the same way a socket read on the JDBC connection does
+                TimeUnit.MICROSECONDS.sleep(roundTripMicros);
+            }
+        } finally {
+            connectionPool.release();
+        }
+        return null;
+    }
+
+    // Looked up reflectively so the benchmarks still compile for the default Java 17 build
+    private static ExecutorService virtualThreadPerTask() throws ReflectiveOperationException {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("virtual threads need a Java 21 runtime", e);
+        }
+    }
+}
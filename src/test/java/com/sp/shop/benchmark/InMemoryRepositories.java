@@ -0,0 +1,34 @@
+package com.sp.shop.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Stand-ins for Spring Data repositories so service code can be benchmarked without a database.
+ * Each repository answers only the methods it is given, keyed by name; anything else the benchmarked
+ * code calls fails loudly instead of quietly measuring nothing.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    static <T> T of(Class<T> repository, Map<String, Function<Object[], Object>> methods) {
+        Object proxy = Proxy.newProxyInstance(repository.getClassLoader(), new Class<?>[] { repository },
+                (self, method, args) -> {
+                    Function<Object[], Object> answer = methods.get(method.getName());
+                    if (answer != null) {
+                        return answer.apply(args);
+                    }
+                    return switch (method.getName()) {
+                        case "toString" -> "in-memory " + repository.getSimpleName();
+                        case "hashCode" -> System.identityHashCode(self);
+                        case "equals" -> self == args[0];
+                        default -> throw new UnsupportedOperationException(
+                                repository.getSimpleName() + "." + method.getName() + " is not available in memory");
+                    };
+                });
+        return repository.cast(proxy);
+    }
+}
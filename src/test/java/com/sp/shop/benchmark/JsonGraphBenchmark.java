@@ -0,0 +1,116 @@
+package com.sp.shop.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sp.shop.dto.BillPage;
+import com.sp.shop.dto.BillResponse;
+import com.sp.shop.entity.Bill;
+import com.sp.shop.entity.BillItem;
+import com.sp.shop.entity.Product;
+import com.sp.shop.entity.Shop;
+
+/**
+ * JSON responses of the busiest endpoints, written with an ObjectMapper configured the way Spring Boot
+ * configures the application's: the checkout response (a 50-line bill, including the entity to DTO
+ * copy), a 100-bill history page and a 100-product page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonGraphBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Bill bill;
+    private BillPage billPage;
+    private List<Product> productPage;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        Shop shop = new Shop();
+        shop.setId(42L);
+        shop.setName("Corner Store");
+
+        bill = bill(1L, shop, 50);
+        List<BillResponse> bills = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            bills.add(BillResponse.from(bill(id, shop, 1 + (int) (id % 8))));
+        }
+        billPage = new BillPage(bills, "MjAyNi0xMC0xOFQxMDowMDowMHwxMDA=");
+
+        productPage = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Product product = new Product();
+            product.setId((long) i);
+            product.setName("Product " + i);
+            product.setBarcode(String.format("890%010d", i));
+            product.setBrand("Brand " + (i % 20));
+            product.setCategory("Category " + (i % 8));
+            product.setPrice(10 + i * 0.25);
+            product.setQuantity(i % 120);
+            product.setImageUrl("https://cdn.example.com/products/" + i + ".jpg");
+            product.setShop(shop);
+            product.setCatalogVersion(i);
+            productPage.add(product);
+        }
+    }
+
+    @Benchmark
+    public byte[] checkoutResponse() throws IOException {
+        return objectMapper.writeValueAsBytes(BillResponse.from(bill));
+    }
+
+    @Benchmark
+    public byte[] billHistoryPage() throws IOException {
+        return objectMapper.writeValueAsBytes(billPage);
+    }
+
+    @Benchmark
+    public byte[] productPage() throws IOException {
+        return objectMapper.writeValueAsBytes(productPage);
+    }
+
+    private static Bill bill(long id, Shop shop, int lines) {
+        Bill bill = new Bill();
+        bill.setId(id);
+        bill.setCustomerName("Walk-in");
+        bill.setCreatedAt(LocalDateTime.of(2026, 10, 18, 10, 0).minusMinutes(id));
+        bill.setShop(shop);
+        double total = 0;
+        for (int i = 0; i < lines; i++) {
+            BillItem item = new BillItem();
+            item.setId(id * 100 + i);
+            item.setProductName("Product " + i);
+            item.setBarcode(String.format("890%010d", i));
+            item.setQuantity(1 + i % 3);
+            item.setPricePerUnit(10 + i * 0.25);
+            item.setTotalPrice(item.getPricePerUnit() * item.getQuantity());
+            item.setBill(bill);
+            bill.getItems().add(item);
+            total += item.getTotalPrice();
+        }
+        bill.setTotalAmount(total);
+        return bill;
+    }
+}
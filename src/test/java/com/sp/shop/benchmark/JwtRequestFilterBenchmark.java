@@ -0,0 +1,77 @@
+package com.sp.shop.benchmark;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sp.shop.entity.Role;
+import com.sp.shop.filter.JwtRequestFilter;
+import com.sp.shop.security.JwtUtil;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+
+/**
+ * JwtRequestFilter end to end for a bearer request: token verification (through the verified-token
+ * cache or a full signature check), building the principal from the embedded roles, the security
+ * context and the filter's metrics. The rest of the chain does nothing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtRequestFilterBenchmark {
+
+    private static final FilterChain END_OF_CHAIN = (request, response) -> {
+    };
+
+    // 0 disables the verified-token cache, so every request checks the signature
+    @Param({ "10000", "0" })
+    public long verifiedTokenCacheSize;
+
+    private JwtRequestFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil(verifiedTokenCacheSize);
+        filter = new JwtRequestFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+
+        request = new MockHttpServletRequest("POST", "/api/bills");
+        request.addHeader("Authorization", "Bearer " + jwtUtil.generateToken("owner", Set.of(Role.ROLE_SHOP_OWNER), 42L));
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Object bearerRequest() throws ServletException, IOException {
+        try {
+            // OncePerRequestFilter clears its already-filtered marker afterwards, so the request can be reused
+            filter.doFilter(request, response, END_OF_CHAIN);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.sp.shop.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sp.shop.entity.Role;
+import com.sp.shop.security.JwtUtil;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Tokens verified per second: the previous per-call key/parser construction with two parses per request,
+ * a single parse with the shared parser, and the verified-token cache hit that repeat bearer tokens take.
+ * Token generation, as done at every login, is measured alongside.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET_KEY = "mysecretkeyformyappsecurelystored";
+
+    private JwtUtil cachingJwtUtil;
+    private JwtUtil uncachedJwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachingJwtUtil = new JwtUtil(10_000);
+        uncachedJwtUtil = new JwtUtil(0);
+        token = cachingJwtUtil.generateToken("owner", Set.of(Role.ROLE_SHOP_OWNER), 42L);
+        cachingJwtUtil.parseClaims(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cachingJwtUtil.generateToken("owner", Set.of(Role.ROLE_SHOP_OWNER), 42L);
+    }
+
+    @Benchmark
+    public String previousFilterPath() {
+        // What JwtRequestFilter used to do: extractUsername, then validateToken parsing again, each building a new key and parser
+        String username = legacyParse(token).getSubject();
+        return legacyParse(token).getSubject().equals(username) ? username : null;
+    }
+
+    @Benchmark
+    public Claims sharedParser() {
+        return uncachedJwtUtil.parseClaims(token);
+    }
+
+    @Benchmark
+    public Claims verifiedTokenCache() {
+        return cachingJwtUtil.parseClaims(token);
+    }
+
+    private static Claims legacyParse(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
@@ -0,0 +1,126 @@
+package com.sp.shop.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.sp.shop.entity.Product;
+import com.sp.shop.entity.Role;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.entity.User;
+
+/**
+ * Time to serialize a 50k-product catalog as the previous JSON (shop and owner embedded per product),
+ * the current JSON, Smile and CBOR. Payload sizes, raw and gzipped, are printed once during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    private static final int PRODUCTS = 50_000;
+
+    // Field-for-field what Product serialized to before shopId replaced the embedded shop
+    record LegacyProduct(Long id, String name, String barcode, String brand, String category, double price,
+            int quantity, String imageUrl, Shop shop) {
+    }
+
+    private List<Product> catalog;
+    private List<LegacyProduct> legacyCatalog;
+    private ObjectMapper legacyJson;
+    private ObjectMapper json;
+    private ObjectMapper smile;
+    private ObjectMapper cbor;
+
+    @Setup
+    public void setUp() throws IOException {
+        User owner = new User(null, "owner", "$2a$10$abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUV",
+                "owner@example.com", Role.ROLE_SHOP_OWNER);
+        owner.setMobile("9876543210");
+        Shop shop = new Shop();
+        shop.setId(42L);
+        shop.setName("Corner Store");
+        shop.setAddress("12 Market Road");
+        shop.setContactNumber("9876543210");
+        shop.setOwner(owner);
+
+        catalog = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setId((long) i);
+            product.setName("Product " + i);
+            product.setBarcode(String.format("890%010d", i));
+            product.setBrand("Brand " + (i % 200));
+            product.setCategory("Category " + (i % 40));
+            product.setPrice(10 + (i % 500) * 0.25);
+            product.setQuantity(i % 120);
+            product.setImageUrl("https://cdn.example.com/products/" + i + ".jpg");
+            product.setShop(shop);
+            product.setCatalogVersion(i);
+            catalog.add(product);
+        }
+
+        legacyCatalog = catalog.stream()
+                .map(p -> new LegacyProduct(p.getId(), p.getName(), p.getBarcode(), p.getBrand(), p.getCategory(),
+                        p.getPrice(), p.getQuantity(), p.getImageUrl(), shop))
+                .toList();
+
+        legacyJson = new ObjectMapper();
+        json = new ObjectMapper();
+        smile = new ObjectMapper(new SmileFactory());
+        cbor = new ObjectMapper(new CBORFactory());
+
+        report("legacy json", legacyJson.writeValueAsBytes(legacyCatalog));
+        report("json", json.writeValueAsBytes(catalog));
+        report("smile", smile.writeValueAsBytes(catalog));
+        report("cbor", cbor.writeValueAsBytes(catalog));
+    }
+
+    @Benchmark
+    public byte[] legacyJson() throws IOException {
+        return legacyJson.writeValueAsBytes(legacyCatalog);
+    }
+
+    @Benchmark
+    public byte[] json() throws IOException {
+        return json.writeValueAsBytes(catalog);
+    }
+
+    @Benchmark
+    public byte[] smile() throws IOException {
+        return smile.writeValueAsBytes(catalog);
+    }
+
+    @Benchmark
+    public byte[] cbor() throws IOException {
+        return cbor.writeValueAsBytes(catalog);
+    }
+
+    private static void report(String format, byte[] raw) throws IOException {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(raw);
+        }
+        System.out.printf("%n%-12s %,12d bytes raw %,12d bytes gzip%n", format, raw.length, gzipped.size());
+    }
+}
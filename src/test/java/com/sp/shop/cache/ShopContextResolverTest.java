@@ -0,0 +1,56 @@
+package com.sp.shop.cache;
+
+import static org.mockito.ArgumentMatchers.any;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.sp.shop.entity.Role;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.entity.User;
+import com.sp.shop.repository.ShopRepository;
+import com.sp.shop.repository.UserRepository;
+
+class ShopContextResolverTest {
+
+    private ShopContextResolver resolver;
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User(1L, "alice", "password-hash", "alice@example.com", Role.ROLE_SHOP_OWNER);
+        userRepository = Mockito.mock(UserRepository.class);
+        Mockito.when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+        ShopRepository shopRepository = Mockito.mock(ShopRepository.class);
+        Mockito.when(shopRepository.findByOwner(any())).thenReturn(Optional.of(new Shop()));
+
+        resolver = new ShopContextResolver(userRepository, shopRepository, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void evict_shouldForgetShopsCachedBeforeTheTransactionCommitted() {
+        resolver.resolveShop("alice");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            resolver.evict("alice");
+            // A request between the eviction and the commit still sees, and caches, the old rows
+            resolver.resolveShop("alice");
+            resolver.resolveShop("alice");
+            Mockito.verify(userRepository, Mockito.times(2)).findByUsername("alice");
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        resolver.resolveShop("alice");
+        Mockito.verify(userRepository, Mockito.times(3)).findByUsername("alice");
+    }
+}
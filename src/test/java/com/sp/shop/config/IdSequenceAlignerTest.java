@@ -0,0 +1,30 @@
+package com.sp.shop.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+class IdSequenceAlignerTest {
+
+    @Test
+    void migrate_shouldMoveSequencesPastIdsWrittenSinceTheLastStart() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:aligner;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway flyway = Flyway.configure().dataSource(dataSource).load();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        IdSequenceAligner aligner = new IdSequenceAligner();
+
+        aligner.migrate(flyway);
+        assertEquals(51L, jdbcTemplate.queryForObject("SELECT next_val FROM product_seq", Long.class));
+
+        // An IDENTITY insert from a node that predates the sequences
+        jdbcTemplate.update("INSERT INTO product (id, name, price, quantity) VALUES (1000, 'Tea', 1.0, 1)");
+        aligner.migrate(flyway);
+
+        assertEquals(1051L, jdbcTemplate.queryForObject("SELECT next_val FROM product_seq", Long.class));
+        assertEquals(51L, jdbcTemplate.queryForObject("SELECT next_val FROM bill_seq", Long.class));
+    }
+}
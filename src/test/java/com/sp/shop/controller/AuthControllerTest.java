@@ -31,14 +31,18 @@ import org.springframework.web.context.WebApplicationContext;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sp.shop.controller.AuthController;
+import com.sp.shop.dto.UserPage;
 import com.sp.shop.dto.UserResponseDTO;
 import com.sp.shop.entity.Role;
 import com.sp.shop.entity.User;
+import com.sp.shop.exception.PasswordHashingBusyException;
 import com.sp.shop.security.JwtUtil;
 import com.sp.shop.service.UserService;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @WebMvcTest(AuthController.class)
-@Import({JwtUtil.class}) // Import required configurations
+@Import({JwtUtil.class, SimpleMeterRegistry.class}) // Import required configurations
 public class AuthControllerTest {
 
     @Autowired
@@ -118,10 +122,26 @@ public class AuthControllerTest {
                 .andExpect(jsonPath("$.token").value("test-token"));
     }
 
+    @Test
+    void testLoginUser_HashingPoolFull() throws Exception {
+        Map<String, String> loginRequest = new HashMap<>();
+        loginRequest.put("email", "test@example.com");
+        loginRequest.put("password", "password123");
+
+        when(userService.loginUser(anyString(), anyString())).thenThrow(new PasswordHashingBusyException());
+
+        mockMvc.perform(post("/api/user/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.error").exists());
+    }
+
     @Test
     void testGetAllUsers_Success() throws Exception {
-        List<User> users = Arrays.asList(testUser);
-        Page<User> userPage = new PageImpl<>(users, PageRequest.of(0, 10), 1);
+        List<UserResponseDTO> users = Arrays.asList(testUserResponseDTO);
+        Page<UserResponseDTO> userPage = new PageImpl<>(users, PageRequest.of(0, 10), 1);
 
         when(userService.getAllUsers(any())).thenReturn(userPage);
 
@@ -133,15 +153,42 @@ public class AuthControllerTest {
                 .andExpect(jsonPath("$.users[0].id").value(1))
                 .andExpect(jsonPath("$.users[0].username").value("testuser"))
                 .andExpect(jsonPath("$.users[0].email").value("test@example.com"))
+                .andExpect(jsonPath("$.users[0].role").value("ROLE_STAFF"))
+                .andExpect(jsonPath("$.users[0].password").doesNotExist())
                 .andExpect(jsonPath("$.currentPage").value(0))
                 .andExpect(jsonPath("$.totalItems").value(1))
                 .andExpect(jsonPath("$.totalPages").value(1));
     }
 
+    @Test
+    void testGetAllUsers_KeysetPage() throws Exception {
+        when(userService.getUserPage(null, "1", 20))
+                .thenReturn(new UserPage(List.of(testUserResponseDTO), "1"));
+
+        mockMvc.perform(get("/api/user/all")
+                .param("cursor", "1")
+                .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users[0].username").value("testuser"))
+                .andExpect(jsonPath("$.nextCursor").value("1"))
+                .andExpect(jsonPath("$.totalItems").doesNotExist());
+    }
+
+    @Test
+    void testSearchUsers_InvalidCursor() throws Exception {
+        when(userService.getUserPage("test", "abc", 50)).thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        mockMvc.perform(get("/api/user/search")
+                .param("search", "test")
+                .param("cursor", "abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid cursor"));
+    }
+
     @Test
     void testSearchUsers_Success() throws Exception {
-        List<User> users = Arrays.asList(testUser);
-        Page<User> userPage = new PageImpl<>(users, PageRequest.of(0, 10), 1);
+        List<UserResponseDTO> users = Arrays.asList(testUserResponseDTO);
+        Page<UserResponseDTO> userPage = new PageImpl<>(users, PageRequest.of(0, 10), 1);
 
         when(userService.searchUsers(anyString(), any())).thenReturn(userPage);
 
@@ -1,15 +1,24 @@
 package com.sp.shop.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.sp.shop.dto.CatalogChanges;
 import com.sp.shop.dto.CreateProductRequest;
+import com.sp.shop.dto.ImportReport;
 import com.sp.shop.entity.Product;
+import com.sp.shop.entity.ProductTombstone;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.service.ProductImportService;
 import com.sp.shop.service.ProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -18,12 +27,14 @@ import java.security.Principal;
 import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 @WebMvcTest(ProductController.class)
+@Import(SimpleMeterRegistry.class)
 class ProductControllerTest {
 
     @Autowired
@@ -32,6 +43,9 @@ class ProductControllerTest {
     @MockBean
     private ProductService productService;
 
+    @MockBean
+    private ProductImportService productImportService;
+
     @MockBean
     private com.sp.shop.security.JwtUtil jwtUtil;
 
@@ -83,10 +97,56 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$[0].name").value("Test Product"));
     }
 
+    @Test
+    @WithMockUser
+    void getProducts_shouldReplaceEmbeddedShopWithShopId() throws Exception {
+        Shop shop = new Shop();
+        shop.setId(5L);
+        product.setShop(shop);
+        Mockito.when(productService.getProductsForUser(anyString())).thenReturn(List.of(product));
+
+        mockMvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].shopId").value(5))
+                .andExpect(jsonPath("$[0].shop").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser
+    void getProducts_shouldNegotiateSmile() throws Exception {
+        Mockito.when(productService.getProductsForUser(anyString())).thenReturn(List.of(product));
+
+        byte[] body = mockMvc.perform(get("/api/products").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode products = new ObjectMapper(new SmileFactory()).readTree(body);
+        assertEquals("123456", products.get(0).get("barcode").asText());
+    }
+
+    @Test
+    @WithMockUser
+    void getProducts_shouldAnswerMatchingETagWithNotModified() throws Exception {
+        Mockito.when(productService.getCatalogETag(anyString())).thenReturn("W/\"1-42\"");
+        Mockito.when(productService.getProductsForUser(anyString())).thenReturn(List.of(product));
+
+        mockMvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-42\""))
+                .andExpect(header().string("Vary", "Accept"));
+
+        mockMvc.perform(get("/api/products").header("If-None-Match", "W/\"1-42\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", "Accept"))
+                .andExpect(content().string(""));
+        Mockito.verify(productService, Mockito.times(1)).getProductsForUser(anyString());
+    }
+
     @Test
     @WithMockUser
     void getProductByBarcode_shouldReturnProduct() throws Exception {
-        Mockito.when(productService.getByBarcode(eq("123456")))
+        Mockito.when(productService.getByBarcode(eq("123456"), anyString()))
                 .thenReturn(Optional.of(product));
 
         mockMvc.perform(get("/api/products/barcode/123456"))
@@ -97,7 +157,7 @@ class ProductControllerTest {
     @Test
     @WithMockUser
     void getProductByBarcode_shouldReturnNotFound() throws Exception {
-        Mockito.when(productService.getByBarcode(eq("notfound")))
+        Mockito.when(productService.getByBarcode(eq("notfound"), anyString()))
                 .thenReturn(Optional.empty());
 
         mockMvc.perform(get("/api/products/barcode/notfound"))
@@ -143,7 +203,7 @@ class ProductControllerTest {
     @Test
     @WithMockUser
     void searchProducts_shouldReturnProductList() throws Exception {
-        Mockito.when(productService.searchProducts(eq("Test")))
+        Mockito.when(productService.searchProducts(eq("Test"), anyString(), anyInt(), anyInt()))
                 .thenReturn(List.of(product));
 
         mockMvc.perform(get("/api/products/search")
@@ -151,4 +211,37 @@ class ProductControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].name").value("Test Product"));
     }
+
+    @Test
+    @WithMockUser(roles = {"SHOP_OWNER"})
+    void importProducts_shouldReturnReport() throws Exception {
+        ImportReport report = new ImportReport();
+        report.setProcessed(2);
+        report.setInserted(1);
+        report.setFailed(1);
+        report.getErrors().add(new ImportReport.RowError(3, null, "Barcode is required"));
+        Mockito.when(productImportService.importProducts(any(), eq(ProductImportService.Format.CSV), anyString()))
+                .thenReturn(report);
+
+        mockMvc.perform(post("/api/products/import")
+                        .with(csrf())
+                        .contentType("text/csv")
+                        .content("name,barcode,price,quantity\nTea,111,2.5,10\nCoffee,,3,5\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+    }
+
+    @Test
+    @WithMockUser
+    void getChanges_shouldReturnChangedProductsAndTombstones() throws Exception {
+        Mockito.when(productService.getChangesSince(eq(7L), anyString()))
+                .thenReturn(new CatalogChanges(9, List.of(product), List.of(new ProductTombstone(2L, 1L, "654321", 8))));
+
+        mockMvc.perform(get("/api/products/changes").param("since", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(9))
+                .andExpect(jsonPath("$.products[0].barcode").value("123456"))
+                .andExpect(jsonPath("$.deleted[0].productId").value(2));
+    }
 }
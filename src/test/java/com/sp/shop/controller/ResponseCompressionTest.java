@@ -0,0 +1,144 @@
+package com.sp.shop.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sp.shop.entity.Product;
+import com.sp.shop.entity.Role;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.entity.User;
+import com.sp.shop.repository.ProductRepository;
+import com.sp.shop.repository.ShopRepository;
+import com.sp.shop.repository.UserRepository;
+import com.sp.shop.security.JwtUtil;
+
+/**
+ * Compression is applied by Tomcat's connector, so this runs the application on a real port. The
+ * conditional-GET endpoints carry an ETag, and Tomcat leaves strongly tagged bodies uncompressed.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:compression;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        // schema from the entities; RepositoryQueryPlanTest covers the Flyway migrations
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "logging.level.root=INFO",
+        "logging.level.org.springframework=INFO"
+})
+class ResponseCompressionTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ShopRepository shopRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        String username = "owner" + System.nanoTime();
+        User owner = new User(null, username, "secret", username + "@example.com", Role.ROLE_SHOP_OWNER);
+        owner.setMobile("9876543210");
+        owner = userRepository.save(owner);
+
+        Shop shop = new Shop();
+        shop.setName("Corner Store");
+        shop.setOwner(owner);
+        shop = shopRepository.save(shop);
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setBarcode(username + "-" + i);
+            product.setPrice(10 + i);
+            product.setQuantity(100);
+            product.setShop(shop);
+            products.add(product);
+        }
+        productRepository.saveAll(products);
+
+        // /api/** is limited to STAFF and ADMIN, whatever the endpoint itself allows
+        token = jwtUtil.generateToken(username, Set.of(Role.ROLE_SHOP_OWNER, Role.ROLE_STAFF), shop.getId());
+    }
+
+    @Test
+    void getProducts_shouldBeGzippedAndStillRevalidate() throws Exception {
+        HttpResponse<InputStream> response = get("/api/products", null);
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        // Tomcat merges its own Accept-Encoding into the header, lower-casing it
+        assertTrue(response.headers().allValues("Vary").stream()
+                        .flatMap(vary -> Arrays.stream(vary.split(",")))
+                        .anyMatch(value -> value.trim().equalsIgnoreCase("Accept")),
+                "the response must vary by Accept: " + response.headers().allValues("Vary"));
+        String etag = response.headers().firstValue("ETag").orElseThrow();
+        assertTrue(etag.startsWith("W/"), "Tomcat only compresses weakly tagged bodies, got " + etag);
+        try (InputStream body = new GZIPInputStream(response.body())) {
+            assertEquals(40, objectMapper.readTree(body).size());
+        }
+
+        HttpResponse<InputStream> revalidated = get("/api/products", etag);
+        assertEquals(304, revalidated.statusCode());
+        revalidated.body().close();
+    }
+
+    @Test
+    void getBills_shouldBeTaggedWeakly() throws Exception {
+        HttpResponse<InputStream> response = get("/api/bills", null);
+        response.body().close();
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("ETag").orElseThrow().startsWith("W/"));
+    }
+
+    private HttpResponse<InputStream> get(String path, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip");
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return client.send(request.GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+}
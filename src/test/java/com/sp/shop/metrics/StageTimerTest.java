@@ -0,0 +1,38 @@
+package com.sp.shop.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+
+class StageTimerTest {
+
+    @Test
+    void finish_shouldOnlyPublishHistogramBucketsWithoutTheShopTag() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        for (long shop = 1; shop <= 3; shop++) {
+            StageTimer timer = StageTimer.start(registry, "shopmate.checkout").shop(shop);
+            timer.stage("principal");
+            timer.summary("shopmate.checkout.cart.lines", 2);
+            timer.finish("success");
+        }
+
+        List<String> buckets = Arrays.stream(registry.scrape().split("\n"))
+                .filter(line -> line.contains("_bucket{"))
+                .toList();
+        assertTrue(buckets.stream().anyMatch(line -> line.startsWith("shopmate_checkout_all_seconds_bucket")));
+        assertTrue(buckets.stream().anyMatch(line -> line.startsWith("shopmate_checkout_stage_all_seconds_bucket")));
+        assertTrue(buckets.stream().anyMatch(line -> line.startsWith("shopmate_checkout_cart_lines_all_bucket")));
+        assertTrue(buckets.stream().noneMatch(line -> line.contains("shop=")), "per-shop buckets: " + buckets);
+
+        // The per-shop meters still count every checkout
+        assertEquals(1, registry.get("shopmate.checkout").tags("outcome", "success", "shop", "2").timer().count());
+        assertEquals(3, registry.get("shopmate.checkout.all").tag("outcome", "success").timer().count());
+    }
+}
@@ -0,0 +1,176 @@
+package com.sp.shop.push;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sp.shop.dto.ShopCatalogVersion;
+import com.sp.shop.dto.StockUpdate;
+import com.sp.shop.repository.ProductRepository;
+import com.sp.shop.repository.ShopRepository;
+
+class StockUpdateBroadcasterTest {
+
+    private ProductRepository productRepository;
+    private ShopRepository shopRepository;
+    private StockUpdateBroadcaster broadcaster;
+    // Current catalog version of shops 1 to 3, as committed by any node
+    private final long[] versions = { 0, 7, 3, 5 };
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        productRepository = Mockito.mock(ProductRepository.class);
+        Mockito.when(productRepository.findStockUpdatesSince(anyLong(), anyLong(), anyLong()))
+                .thenAnswer(invocation -> List.of(new StockUpdate(1L, "111", 4, 2.5, invocation.getArgument(2))));
+        shopRepository = Mockito.mock(ShopRepository.class);
+        Mockito.when(shopRepository.findCatalogVersion(anyLong()))
+                .thenAnswer(invocation -> versions[invocation.<Long>getArgument(0).intValue()]);
+        Mockito.when(shopRepository.findCatalogVersions(Mockito.any())).thenAnswer(invocation -> {
+            List<ShopCatalogVersion> found = new ArrayList<>();
+            for (Long shopId : invocation.<List<Long>>getArgument(0)) {
+                found.add(new ShopCatalogVersion(shopId, versions[shopId.intValue()]));
+            }
+            return found;
+        });
+        broadcaster = new StockUpdateBroadcaster(productRepository, shopRepository, new ObjectMapper(),
+                Duration.ofMinutes(1), 2, 1, 2, Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        broadcaster.destroy();
+    }
+
+    @Test
+    void flush_shouldPushChangesCommittedOnAnyNode() throws Exception {
+        List<Object> sent = Collections.synchronizedList(new ArrayList<>());
+        attachClient(broadcaster.subscribe(1L), sent);
+
+        // Three sales on other nodes; nothing here was told about them
+        versions[1] = 10;
+        broadcaster.flush();
+        broadcaster.flush();  // nothing left to send
+
+        Mockito.verify(productRepository, Mockito.times(1)).findStockUpdatesSince(1L, 7, 10);
+        assertTrue(awaitSent(sent, "\"catalogVersion\":10"), "sent " + sent);
+    }
+
+    @Test
+    void flush_shouldNotReadProductsOfShopsThatDidNotChange() {
+        broadcaster.subscribe(1L);
+        versions[2] = 4;  // shop 2 has no subscriber on this node
+
+        broadcaster.flush();
+
+        Mockito.verify(productRepository, Mockito.never()).findStockUpdatesSince(anyLong(), anyLong(), anyLong());
+        Mockito.verify(shopRepository).findCatalogVersions(eq(List.of(1L)));
+    }
+
+    @Test
+    void subscribe_shouldRejectConnectionsOverTheLimit() {
+        broadcaster.subscribe(1L);
+        broadcaster.subscribe(2L);
+
+        assertThrows(IllegalStateException.class, () -> broadcaster.subscribe(3L));
+        assertEquals(2, broadcaster.getConnectionCount());
+    }
+
+    @Test
+    void heartbeat_shouldDropASubscriberWhoseSendIsStuck() throws Exception {
+        attachStalledClient(broadcaster.subscribe(1L));
+        versions[1]++;
+
+        broadcaster.flush();  // returns while the write is still stuck on the sender thread
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        broadcaster.heartbeat();
+
+        assertEquals(0, broadcaster.getConnectionCount());
+    }
+
+    @Test
+    void flush_shouldDropASubscriberThatFallsTooFarBehind() throws Exception {
+        attachStalledClient(broadcaster.subscribe(1L));
+        broadcaster.subscribe(2L);
+
+        for (int i = 0; i < 4; i++) {
+            versions[1]++;
+            broadcaster.flush();
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+        }
+
+        // One event is in the stuck write, two fill the queue and the fourth overflows it
+        assertEquals(1, broadcaster.getConnectionCount());
+    }
+
+    // Stands in for the servlet response of a client that stopped reading: every write blocks
+    private void attachStalledClient(SseEmitter emitter) throws ClassNotFoundException {
+        attachHandler(emitter, args -> {
+            sending.countDown();
+            unblock.await();
+        });
+    }
+
+    // Stands in for the servlet response of a client that reads everything; the event parts land in sent
+    private void attachClient(SseEmitter emitter, List<Object> sent) throws ClassNotFoundException {
+        attachHandler(emitter, args -> {
+            if (args[0] instanceof Set<?> parts) {
+                parts.forEach(part -> sent.add(((ResponseBodyEmitter.DataWithMediaType) part).getData()));
+            } else {
+                sent.add(args[0]);
+            }
+        });
+    }
+
+    private interface Send {
+        void accept(Object[] args) throws Exception;
+    }
+
+    private void attachHandler(SseEmitter emitter, Send send) throws ClassNotFoundException {
+        // Package-private in Spring MVC: the return value handler normally attaches it
+        Class<?> handlerType = Class.forName(ResponseBodyEmitter.class.getName() + "$Handler");
+        Object handler = Proxy.newProxyInstance(handlerType.getClassLoader(), new Class<?>[] { handlerType },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("send")) {
+                        send.accept(args);
+                    }
+                    return null;
+                });
+        ReflectionTestUtils.invokeMethod(emitter, "initialize", handler);
+    }
+
+    // The sender thread writes asynchronously, and an event arrives in several parts
+    private static boolean awaitSent(List<Object> sent, String text) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!sent.toString().contains(text)) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,248 @@
+package com.sp.shop.repository;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.sp.shop.config.SecondLevelCacheConfig;
+import com.sp.shop.entity.Bill;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.entity.User;
+
+/**
+ * Builds the schema with the Flyway migrations, runs every repository query on the request path and
+ * asks the database for each one's plan. A query that scans a whole table instead of seeking an
+ * index fails the build. The SQL is Hibernate's MySQL SQL, but the plans are H2's (in MySQL mode):
+ * this catches a query that no index can serve, not a choice MySQL's optimizer would make differently.
+ * Check those with EXPLAIN on MySQL itself.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SecondLevelCacheConfig.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:plans;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.sp.shop.repository.RepositoryQueryPlanTest$CapturingInspector"
+})
+class RepositoryQueryPlanTest {
+
+    // H2 annotates each table in a plan with the index it reads and, when it seeks, the condition after a colon
+    private static final Pattern TABLE_ACCESS = Pattern.compile("/\\* (PUBLIC\\.[^*]+?)\\s*\\*/");
+
+    private static final List<String> CAPTURED = new CopyOnWriteArrayList<>();
+
+    public static class CapturingInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            CAPTURED.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private BillRepository billRepository;
+
+    @Autowired
+    private BillItemRepository billItemRepository;
+
+    @Autowired
+    private ShopRepository shopRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+
+    @Autowired
+    private DailyProductSalesRepository dailyProductSalesRepository;
+
+    @Autowired
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    private Shop shop;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        // "analyze" commits in H2, so the seed rows outlive each test's rollback and are inserted once
+        if (shopRepository.count() == 0) {
+            seed();
+        }
+        shop = shopRepository.findById(7L).orElseThrow();
+        owner = shop.getOwner();
+        CAPTURED.clear();
+    }
+
+    private void seed() {
+        // Enough rows in every table that a scan is never the cheap option
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> shops = new ArrayList<>();
+        for (long i = 1; i <= 200; i++) {
+            users.add(new Object[] { i, "owner" + i, "owner" + i + "@example.com" });
+            shops.add(new Object[] { i, "owner" + i });
+        }
+        jdbcTemplate.batchUpdate("insert into users (id, username, email, password, mobile, is_verified) "
+                + "values (?, ?, ?, 'secret', '9876543210', true)", users);
+        jdbcTemplate.batchUpdate("insert into shop (id, name, owner_username) values (?, 'Shop', ?)", shops);
+
+        List<Object[]> products = new ArrayList<>();
+        List<Object[]> bills = new ArrayList<>();
+        List<Object[]> items = new ArrayList<>();
+        for (long i = 1; i <= 4000; i++) {
+            long shopId = 1 + i % 200;
+            products.add(new Object[] { i, shopId, "bc" + i, i % 50 });
+            bills.add(new Object[] { i, shopId, LocalDateTime.now().minusMinutes(i) });
+            items.add(new Object[] { 2 * i, i, "bc" + i });
+            items.add(new Object[] { 2 * i + 1, i, "bc" + (i + 1) });
+        }
+        jdbcTemplate.batchUpdate("insert into product (id, shop_id, barcode, name, price, quantity, catalog_version) "
+                + "values (?, ?, ?, 'Product', 1.0, 10, ?)", products);
+        jdbcTemplate.batchUpdate("insert into bill (id, shop_id, created_at, customer_name, total_amount) "
+                + "values (?, ?, ?, 'Walk-in', 2.0)", bills);
+        jdbcTemplate.batchUpdate("insert into bill_item (id, bill_id, barcode, product_name, quantity, price_per_unit, "
+                + "total_price) values (?, ?, ?, 'Product', 1, 1.0, 1.0)", items);
+        jdbcTemplate.execute("analyze");
+    }
+
+    @Test
+    void productQueries_shouldUseIndexes() {
+        productRepository.findByShopAndBarcode(shop, "bc6");
+        productRepository.findByShop(shop);
+        productRepository.findByShopId(shop.getId());
+        productRepository.findByShopAndBarcodeIn(shop, List.of("bc6", "bc206"));
+        productRepository.findByShopAndCatalogVersionGreaterThanOrderByCatalogVersionAscIdAsc(shop, 40);
+        productRepository.findStockUpdatesSince(shop.getId(), 40, 45);
+        try (Stream<?> rows = productRepository.streamExportRowsByShop(shop)) {
+            rows.count();
+        }
+        productTombstoneRepository.findByShopIdAndCatalogVersionGreaterThanOrderByCatalogVersion(shop.getId(), 40);
+
+        assertCapturedQueriesUseIndexes();
+    }
+
+    @Test
+    void billQueries_shouldUseIndexes() {
+        LocalDateTime from = LocalDateTime.now().minusDays(1);
+        LocalDateTime to = LocalDateTime.now();
+        Bill bill = billRepository.findById(6L).orElseThrow();
+
+        billRepository.findByShop(shop);
+        billRepository.findResponsesByShop(shop);
+        billRepository.findPage(shop, from, to, PageRequest.of(0, 50));
+        billRepository.findPageAfter(shop, from, to, to.minusMinutes(30), 30L, PageRequest.of(0, 50));
+        try (Stream<?> rows = billRepository.streamResponsesByShop(shop, from, to)) {
+            rows.count();
+        }
+        try (Stream<?> rows = billRepository.streamLinesByShop(shop, from, to)) {
+            rows.count();
+        }
+        billItemRepository.findByBill(bill);
+        billItemRepository.findResponsesByBillIdIn(List.of(6L, 206L));
+
+        assertCapturedQueriesUseIndexes();
+    }
+
+    @Test
+    void userShopAndReportQueries_shouldUseIndexes() {
+        userRepository.findByUsername("owner7");
+        userRepository.findByEmail("owner7@example.com");
+        userRepository.findResponsesAfter(100, PageRequest.of(0, 51));
+        userRepository.findRolesByUserIdIn(List.of(7L, 8L));
+        shopRepository.findByOwner(owner);
+        shopRepository.findCatalogVersion(shop.getId());
+        shopRepository.findCatalogVersions(List.of(shop.getId(), 8L));
+        dailySalesRepository.findByShopIdAndSalesDateBetweenOrderBySalesDate(shop.getId(),
+                LocalDate.now().minusDays(30), LocalDate.now());
+        dailyProductSalesRepository.findTopByUnits(shop.getId(), LocalDate.now().minusDays(30), LocalDate.now(),
+                PageRequest.of(0, 10));
+
+        assertCapturedQueriesUseIndexes();
+    }
+
+    @Test
+    void userPrefixSearches_shouldUseIndexes() {
+        // The keyset search the admin listing runs: one range per column, merged by id
+        userRepository.findResponsesByUsernamePrefixAfter("owner7%", 0, PageRequest.of(0, 51));
+        userRepository.findResponsesByEmailPrefixAfter("owner7%", 0, PageRequest.of(0, 51));
+        userRepository.findResponsesByMobilePrefixAfter("98765%", 0, PageRequest.of(0, 51));
+        // searchResponses (the offset search) is not covered: it ORs the three columns, which MySQL answers
+        // with an index_merge union and H2 can only answer with a scan
+
+        assertCapturedQueriesUseIndexes("owner7%");
+    }
+
+    private void assertCapturedQueriesUseIndexes() {
+        assertCapturedQueriesUseIndexes(null);
+    }
+
+    // A LIKE is planned as an index range only for a known prefix, so its parameters are bound to one
+    private void assertCapturedQueriesUseIndexes(String likePattern) {
+        List<String> selects = CAPTURED.stream().filter(sql -> sql.startsWith("select")).distinct().toList();
+        assertFalse(selects.isEmpty(), "no queries were captured");
+        for (String sql : selects) {
+            String plan = explain(sql, likePattern);
+            Matcher access = TABLE_ACCESS.matcher(plan);
+            boolean found = false;
+            while (access.find()) {
+                found = true;
+                // "PUBLIC.PRODUCT.tableScan", or an index named without a condition, reads every row
+                assertTrue(access.group(1).contains(":"), () -> "full scan in plan:\n" + plan + "\nfor:\n" + sql);
+            }
+            assertTrue(found, () -> "unexpected plan format:\n" + plan);
+        }
+    }
+
+    private String explain(String sql, String likePattern) {
+        // Text before each "?" of the statement, to tell LIKE parameters from the rest
+        String[] beforeParameter = sql.split("\\?", -1);
+        return jdbcTemplate.execute((ConnectionCallback<String>) (Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    boolean like = likePattern != null && beforeParameter[i - 1].stripTrailing().endsWith("like");
+                    statement.setObject(i, like ? likePattern : null);
+                }
+                try (ResultSet plan = statement.executeQuery()) {
+                    plan.next();
+                    return plan.getString(1);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,152 @@
+package com.sp.shop.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.sp.shop.entity.Product;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.repository.ProductRepository;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+    private ProductRepository productRepository;
+    private Shop shop;
+    private final AtomicLong nanos = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        shop = new Shop();
+        shop.setId(1L);
+
+        productRepository = Mockito.mock(ProductRepository.class);
+        Mockito.when(productRepository.findByShopId(anyLong())).thenReturn(List.of(
+                product(1L, "Basmati Rice 5kg", "India Gate", "Grocery", "8901234500011"),
+                product(2L, "Brown Rice", "Daawat", "Grocery", "8901234500028"),
+                product(3L, "Chocolate Cookies", "Britannia", "Snacks", "8901234500035")));
+
+        // Rebuilds run on the calling thread so a refresh has finished when the search that triggered it returns
+        index = new ProductSearchIndex(productRepository, 1_000, Duration.ofMinutes(5), Duration.ofHours(1),
+                nanos::get, Runnable::run);
+    }
+
+    @Test
+    void search_shouldMatchPrefixes() {
+        assertEquals(List.of(3L), index.search(shop, "choc", 0, 10));
+    }
+
+    @Test
+    void search_shouldTolerateTypos() {
+        assertEquals(List.of(3L), index.search(shop, "chocolte", 0, 10));
+    }
+
+    @Test
+    void search_shouldOrderEqualScoresByName() {
+        assertEquals(List.of(1L, 2L), index.search(shop, "rice", 0, 10));
+    }
+
+    @Test
+    void search_shouldMatchBrand() {
+        assertEquals(List.of(3L), index.search(shop, "britannia", 0, 10));
+    }
+
+    @Test
+    void search_shouldRequireEveryTerm() {
+        assertEquals(List.of(2L), index.search(shop, "brown rice", 0, 10));
+    }
+
+    @Test
+    void search_shouldMatchBarcodePrefixes() {
+        assertEquals(List.of(2L), index.search(shop, "8901234500028", 0, 10));
+    }
+
+    @Test
+    void search_shouldPaginate() {
+        assertEquals(List.of(2L), index.search(shop, "grocery", 1, 1));
+    }
+
+    @Test
+    void indexAndRemove_shouldKeepResultsCurrent() {
+        index.search(shop, "rice", 0, 10);  // builds the shop's index
+
+        index.index(product(4L, "Jasmine Rice", "Royal", "Grocery", "8901234500042"));
+        assertTrue(index.search(shop, "jasmine", 0, 10).contains(4L));
+
+        index.remove(1L, 4L);
+        assertTrue(index.search(shop, "jasmine", 0, 10).isEmpty());
+    }
+
+    @Test
+    void index_shouldWaitForTheTransactionToCommit() {
+        index.search(shop, "rice", 0, 10);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.index(product(4L, "Jasmine Rice", "Royal", "Grocery", "8901234500042"));
+            assertTrue(index.search(shop, "jasmine", 0, 10).isEmpty(), "visible before the commit");
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(List.of(4L), index.search(shop, "jasmine", 0, 10));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void search_shouldEvictIndexesByTheirSizeNotTheirNumber() {
+        // Each catalog above weighs 3 products plus 17 postings; two of them do not fit in 30 entries
+        index = new ProductSearchIndex(productRepository, 30, Duration.ofMinutes(5), Duration.ofHours(1),
+                nanos::get, Runnable::run);
+        Shop other = new Shop();
+        other.setId(2L);
+
+        for (int round = 0; round < 2; round++) {
+            index.search(shop, "rice", 0, 10);
+            index.search(other, "rice", 0, 10);
+        }
+
+        // Only one of the two stays cached, so the second round builds at least one again
+        Mockito.verify(productRepository, Mockito.atLeast(3)).findByShopId(anyLong());
+    }
+
+    @Test
+    void refresh_shouldPickUpOutsideWritesWithoutLosingChangesMadeDuringTheRebuild() {
+        index.search(shop, "rice", 0, 10);
+
+        // Another node added green tea; while the rebuild reads the table, this node commits jasmine rice
+        Mockito.when(productRepository.findByShopId(anyLong())).thenAnswer(invocation -> {
+            index.index(product(4L, "Jasmine Rice", "Royal", "Grocery", "8901234500042"));
+            return List.of(product(5L, "Green Tea", "Tetley", "Beverages", "8901234500059"));
+        });
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(6));
+
+        index.search(shop, "rice", 0, 10);  // still served by the old index; starts the rebuild
+
+        assertEquals(List.of(5L), index.search(shop, "tea", 0, 10));
+        assertEquals(List.of(4L), index.search(shop, "jasmine", 0, 10));
+        assertTrue(index.search(shop, "chocolate", 0, 10).isEmpty(), "the rebuild reads the table afresh");
+    }
+
+    private Product product(Long id, String name, String brand, String category, String barcode) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setBrand(brand);
+        product.setCategory(category);
+        product.setBarcode(barcode);
+        product.setShop(shop);
+        return product;
+    }
+}
@@ -0,0 +1,383 @@
+package com.sp.shop.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.sp.shop.cache.BarcodeIndex;
+import com.sp.shop.cache.ShopContextResolver;
+import com.sp.shop.config.SecondLevelCacheConfig;
+import com.sp.shop.dto.BillRequest;
+import com.sp.shop.entity.Bill;
+import com.sp.shop.entity.DailyProductSales;
+import com.sp.shop.entity.DailySales;
+import com.sp.shop.entity.Product;
+import com.sp.shop.entity.Role;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.entity.User;
+import com.sp.shop.repository.DailyProductSalesRepository;
+import com.sp.shop.repository.DailySalesRepository;
+import com.sp.shop.repository.ProductRepository;
+import com.sp.shop.repository.ShopRepository;
+import com.sp.shop.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Runs checkout against an in-memory H2 database and counts the JDBC statements each checkout
+ * sends, so a regression back to per-line queries or unbatched inserts fails the build.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ BillingService.class, ShopContextResolver.class, BarcodeIndex.class,
+        JacksonAutoConfiguration.class, SecondLevelCacheConfig.class, SimpleMeterRegistry.class,
+        BillingServiceTest.StatementCounting.class })
+@TestPropertySource(properties = {
+        // MySQL mode so the rollup upserts (INSERT ... ON DUPLICATE KEY UPDATE) run as in production
+        "spring.datasource.url=jdbc:h2:mem:billing;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        // schema from the entities; RepositoryQueryPlanTest covers the Flyway migrations
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class BillingServiceTest {
+
+    private static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+    // A checkout on the armed thread stops at its bill insert, transaction open, until released
+    static final class Pause {
+        volatile Thread thread;
+        final CountDownLatch reached = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+    }
+
+    private static volatile Pause pause;
+
+    @Autowired
+    private BillingService billingService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShopRepository shopRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+
+    @Autowired
+    private DailyProductSalesRepository dailyProductSalesRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private BarcodeIndex barcodeIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String username;
+
+    @BeforeEach
+    void setUp() {
+        username = "owner" + System.nanoTime();
+        User owner = new User(null, username, "secret", username + "@example.com", Role.ROLE_SHOP_OWNER);
+        owner.setMobile("9876543210");
+        owner = userRepository.save(owner);
+
+        Shop shop = new Shop();
+        shop.setName("Corner Store");
+        shop.setOwner(owner);
+        shop = shopRepository.save(shop);
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setBarcode(username + "-" + i);
+            product.setPrice(10 + i);
+            product.setQuantity(100);
+            product.setShop(shop);
+            products.add(product);
+        }
+        productRepository.saveAll(products);
+    }
+
+    @Test
+    void createBill_shouldIssueTheSameNumberOfStatementsForAnyCartSize() {
+        billingService.createBill(cart(3), username);  // warms the shop context and the id pools
+
+        STATEMENTS.set(0);
+        billingService.createBill(cart(5), username);
+        int smallCart = STATEMENTS.get();
+
+        STATEMENTS.set(0);
+        billingService.createBill(cart(30), username);
+        int largeCart = STATEMENTS.get();
+
+        assertEquals(smallCart, largeCart, "statements per checkout must not grow with the cart");
+        // stock batch, reading the reserved products back, bill insert, one item batch,
+        // two rollup upserts, catalog version bump and stamp
+        assertTrue(largeCart <= 8, "expected at most 8 statements per checkout but got " + largeCart);
+    }
+
+    @Test
+    void createBill_shouldDecrementStockAndRejectOverselling() {
+        Bill bill = billingService.createBill(cart(2), username);
+        assertEquals(2, bill.getItems().size());
+        Product sold = productRepository.findAll().stream()
+                .filter(product -> product.getBarcode().equals(username + "-0"))
+                .findFirst().orElseThrow();
+        assertEquals(99, sold.getQuantity());
+        assertEquals(shopRepository.findCatalogVersion(sold.getShop().getId()), sold.getCatalogVersion());
+
+        BillRequest tooMuch = cart(1);
+        tooMuch.getItems().get(0).setQuantity(1000);
+        assertThrows(RuntimeException.class, () -> billingService.createBill(tooMuch, username));
+    }
+
+    @Test
+    void createBill_shouldRejectLinesThatAreNotPositive() {
+        for (int quantity : new int[] { 0, -1 }) {
+            BillRequest request = cart(2);
+            request.getItems().get(1).setQuantity(quantity);
+            assertThrows(RuntimeException.class, () -> billingService.createBill(request, username));
+        }
+
+        // Neither attempt touched stock or recorded a sale
+        productRepository.findAll().stream()
+                .filter(product -> product.getBarcode().startsWith(username + "-"))
+                .forEach(product -> assertEquals(100, product.getQuantity()));
+        Long shopId = shopRepository.findAll().stream()
+                .filter(shop -> shop.getOwner().getUsername().equals(username))
+                .findFirst().orElseThrow().getId();
+        assertTrue(dailySalesRepository.findById(new DailySales.Key(shopId, LocalDate.now())).isEmpty());
+    }
+
+    @Test
+    void createBill_shouldChargeThePriceOfTheLockedRowNotTheIndexedOne() {
+        Product product = productRepository.findAll().stream()
+                .filter(candidate -> candidate.getBarcode().equals(username + "-0"))
+                .findFirst().orElseThrow();
+        barcodeIndex.put(product);
+        // Another node reprices the product; this node's index still holds the old price
+        jdbcTemplate.update("UPDATE product SET price = 25, name = 'Repriced' WHERE id = ?", product.getId());
+
+        Bill bill = billingService.createBill(cart(1), username);
+
+        assertEquals(25, bill.getItems().get(0).getPricePerUnit(), 0.001);
+        assertEquals("Repriced", bill.getItems().get(0).getProductName());
+        assertEquals(25, bill.getTotalAmount(), 0.001);
+    }
+
+    @Test
+    void createBill_shouldEvictSoldProductsFromTheSecondLevelCache() {
+        Long productId = productRepository.findAll().stream()
+                .filter(product -> product.getBarcode().equals(username + "-0"))
+                .findFirst().orElseThrow().getId();
+        assertEquals(100, productRepository.findById(productId).orElseThrow().getQuantity());
+        assertTrue(entityManagerFactory.getCache().contains(Product.class, productId));
+
+        billingService.createBill(cart(1), username);  // stock is decremented with plain JDBC
+
+        assertEquals(99, productRepository.findById(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void createBill_shouldAccumulateDailyRollups() {
+        billingService.createBill(cart(2), username);
+        BillRequest repeat = cart(1);
+        repeat.getItems().get(0).setQuantity(4);
+        billingService.createBill(repeat, username);
+
+        Long shopId = shopRepository.findAll().stream()
+                .filter(shop -> shop.getOwner().getUsername().equals(username))
+                .findFirst().orElseThrow().getId();
+        DailySales day = dailySalesRepository.findById(new DailySales.Key(shopId, LocalDate.now())).orElseThrow();
+        assertEquals(2, day.getBillCount());
+        assertEquals(6, day.getUnitsSold());
+        assertEquals(10 + 11 + 40, day.getRevenue(), 0.001);
+
+        DailyProductSales first = dailyProductSalesRepository
+                .findById(new DailyProductSales.Key(shopId, LocalDate.now(), username + "-0")).orElseThrow();
+        assertEquals(5, first.getUnitsSold());
+        assertEquals(50, first.getRevenue(), 0.001);
+    }
+
+    @Test
+    void createBill_shouldTimeEachStageAndCountStockConflicts() {
+        billingService.createBill(cart(3), username);
+        BillRequest tooMuch = cart(1);
+        tooMuch.getItems().get(0).setQuantity(1000);
+        assertThrows(RuntimeException.class, () -> billingService.createBill(tooMuch, username));
+
+        String shop = shopRepository.findAll().stream()
+                .filter(candidate -> candidate.getOwner().getUsername().equals(username))
+                .findFirst().orElseThrow().getId().toString();
+        // The rejected checkout still records the stages it got through
+        assertEquals(2, stageCount("principal", shop));
+        assertEquals(2, stageCount("stock-update", shop));
+        assertEquals(1, stageCount("bill-persist", shop));
+        assertEquals(1, meterRegistry.get("shopmate.checkout").tags("outcome", "success", "shop", shop).timer().count());
+        assertEquals(1, meterRegistry.get("shopmate.checkout").tags("outcome", "error", "shop", shop).timer().count());
+        assertEquals(1, meterRegistry.get("shopmate.checkout.stock.conflict").tag("shop", shop).counter().count());
+        assertEquals(3, meterRegistry.get("shopmate.checkout.cart.lines").tag("shop", shop).summary().totalAmount());
+        assertEquals(10 + 11 + 12, meterRegistry.get("shopmate.checkout.bill.total").tag("shop", shop).summary().totalAmount(), 0.001);
+    }
+
+    @Test
+    void createBill_shouldNotMakeCheckoutsInTheSameShopWaitForEachOther() throws Exception {
+        billingService.createBill(cart(1), username);  // warms the shop context and the id pools
+
+        ExecutorService registers = Executors.newFixedThreadPool(2);
+        Pause held = new Pause();
+        try {
+            Future<Bill> first = registers.submit(() -> {
+                held.thread = Thread.currentThread();
+                pause = held;
+                return billingService.createBill(cart(0, 2), username);
+            });
+            assertTrue(held.reached.await(10, TimeUnit.SECONDS), "first checkout never reached its bill insert");
+
+            // The first checkout has reserved its stock and is still open; a second one must not queue behind it
+            try {
+                Bill second = registers.submit(() -> billingService.createBill(cart(10, 2), username))
+                        .get(5, TimeUnit.SECONDS);
+                assertEquals(2, second.getItems().size());
+            } finally {
+                held.released.countDown();
+            }
+            assertEquals(2, first.get(10, TimeUnit.SECONDS).getItems().size());
+        } finally {
+            pause = null;
+            registers.shutdownNow();
+        }
+    }
+
+    private long stageCount(String stage, String shop) {
+        return meterRegistry.get("shopmate.checkout.stage").tags("stage", stage, "shop", shop).timer().count();
+    }
+
+    private BillRequest cart(int lines) {
+        return cart(0, lines);
+    }
+
+    private BillRequest cart(int from, int lines) {
+        BillRequest request = new BillRequest();
+        request.setCustomerName("Walk-in");
+        List<BillRequest.CartItem> items = new ArrayList<>();
+        for (int i = from; i < from + lines; i++) {
+            BillRequest.CartItem item = new BillRequest.CartItem();
+            item.setBarcode(username + "-" + i);
+            item.setQuantity(1);
+            items.add(item);
+        }
+        request.setItems(items);
+        return request;
+    }
+
+    // Wraps the DataSource so every statement execution (a batch counts once) bumps STATEMENTS
+    @TestConfiguration
+    static class StatementCounting {
+
+        private static final Set<String> EXECUTE_METHODS = Set.of(
+                "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource) {
+                        return proxy(DataSource.class, dataSource);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target) {
+            return proxy(type, target, null);
+        }
+
+        // sql is the statement text for prepared statements, so pooled id fetches can be told apart
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, String sql) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+                if (EXECUTE_METHODS.contains(method.getName())) {
+                    String executed = args != null && args.length > 0 && args[0] instanceof String text ? text : sql;
+                    if (executed == null || !executed.contains("_seq")) {
+                        STATEMENTS.incrementAndGet();  // id pool refills happen once per 50 rows, not per checkout
+                    }
+                    Pause armed = pause;
+                    if (armed != null && armed.thread == Thread.currentThread()
+                            && executed != null && executed.startsWith("insert into bill (")) {
+                        armed.reached.countDown();
+                        armed.released.await();
+                    }
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof Connection connection) {
+                    return proxy(Connection.class, connection);
+                }
+                if (result instanceof Statement statement && method.getReturnType().isInterface()) {
+                    String text = args != null && args.length > 0 && args[0] instanceof String prepared ? prepared : null;
+                    return proxy((Class<Statement>) method.getReturnType(), statement, text);
+                }
+                return result;
+            });
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.sp.shop.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.sp.shop.config.SecondLevelCacheConfig;
+import com.sp.shop.entity.EmailOutbox;
+import com.sp.shop.entity.EmailStatus;
+import com.sp.shop.repository.EmailOutboxRepository;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ EmailDispatcher.class, SecondLevelCacheConfig.class })
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:email;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        // schema from the entities; RepositoryQueryPlanTest covers the Flyway migrations
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "shopmate.mail.batch-size=5"
+})
+class EmailDispatcherTest {
+
+    @Autowired
+    private EmailDispatcher emailDispatcher;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @BeforeEach
+    void setUp() {
+        emailOutboxRepository.deleteAll();
+    }
+
+    @Test
+    void dispatch_shouldSendWithNoTransactionOpenAndTheRowsClaimed() {
+        EmailOutbox email = queue("alice@example.com", EmailStatus.PENDING, LocalDateTime.now().minusSeconds(1));
+        List<EmailStatus> statusesWhileSending = new ArrayList<>();
+        doAnswer(invocation -> {
+            assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+            statusesWhileSending.add(emailOutboxRepository.findById(email.getId()).orElseThrow().getStatus());
+            return null;
+        }).when(mailSender).send(any(SimpleMailMessage[].class));
+
+        emailDispatcher.dispatch();
+
+        assertEquals(List.of(EmailStatus.IN_FLIGHT), statusesWhileSending);
+        EmailOutbox sent = emailOutboxRepository.findById(email.getId()).orElseThrow();
+        assertEquals(EmailStatus.SENT, sent.getStatus());
+        assertEquals(1, sent.getAttempts());
+        assertNotNull(sent.getSentAt());
+    }
+
+    @Test
+    void dispatch_shouldPutFailedMessagesBackForALaterAttempt() {
+        EmailOutbox email = queue("bob@example.com", EmailStatus.PENDING, LocalDateTime.now().minusSeconds(1));
+        doThrow(new MailSendException("Connection refused")).when(mailSender).send(any(SimpleMailMessage[].class));
+
+        emailDispatcher.dispatch();
+
+        EmailOutbox retried = emailOutboxRepository.findById(email.getId()).orElseThrow();
+        assertEquals(EmailStatus.PENDING, retried.getStatus());
+        assertEquals(1, retried.getAttempts());
+        assertEquals("Connection refused", retried.getLastError());
+    }
+
+    @Test
+    void dispatch_shouldReclaimRowsWhoseLeaseRanOutButLeaveLiveLeasesAlone() {
+        EmailOutbox abandoned = queue("carol@example.com", EmailStatus.IN_FLIGHT, LocalDateTime.now().minusSeconds(1));
+        EmailOutbox leased = queue("dave@example.com", EmailStatus.IN_FLIGHT, LocalDateTime.now().plusMinutes(5));
+
+        emailDispatcher.dispatch();
+
+        assertEquals(EmailStatus.SENT, emailOutboxRepository.findById(abandoned.getId()).orElseThrow().getStatus());
+        assertEquals(EmailStatus.IN_FLIGHT, emailOutboxRepository.findById(leased.getId()).orElseThrow().getStatus());
+    }
+
+    private EmailOutbox queue(String recipient, EmailStatus status, LocalDateTime nextAttemptAt) {
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(recipient);
+        email.setSubject("Welcome");
+        email.setBody("Hello");
+        email.setStatus(status);
+        email.setNextAttemptAt(nextAttemptAt);
+        email.setCreatedAt(LocalDateTime.now());
+        return emailOutboxRepository.save(email);
+    }
+}
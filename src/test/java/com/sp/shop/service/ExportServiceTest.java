@@ -0,0 +1,147 @@
+package com.sp.shop.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.sp.shop.cache.BarcodeIndex;
+import com.sp.shop.cache.ShopContextResolver;
+import com.sp.shop.config.SecondLevelCacheConfig;
+import com.sp.shop.dto.BillRequest;
+import com.sp.shop.entity.Product;
+import com.sp.shop.entity.Role;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.entity.User;
+import com.sp.shop.repository.ProductRepository;
+import com.sp.shop.repository.ShopRepository;
+import com.sp.shop.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ ExportService.class, BillingService.class, ShopContextResolver.class, BarcodeIndex.class,
+        JacksonAutoConfiguration.class, SecondLevelCacheConfig.class,
+        SimpleMeterRegistry.class })
+@TestPropertySource(properties = {
+        // MySQL mode for the rollup upserts checkout runs
+        "spring.datasource.url=jdbc:h2:mem:export;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        // schema from the entities; RepositoryQueryPlanTest covers the Flyway migrations
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+class ExportServiceTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private BillingService billingService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShopRepository shopRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private String username;
+
+    @BeforeEach
+    void setUp() {
+        username = "owner" + System.nanoTime();
+        User owner = new User(null, username, "secret", username + "@example.com", Role.ROLE_SHOP_OWNER);
+        owner.setMobile("9876543210");
+        owner = userRepository.save(owner);
+
+        Shop shop = new Shop();
+        shop.setName("Corner Store");
+        shop.setOwner(owner);
+        shop = shopRepository.save(shop);
+
+        Product product = new Product();
+        product.setName("Tea, \"green\"");
+        product.setBarcode(username + "-tea");
+        product.setPrice(2.5);
+        product.setQuantity(10);
+        product.setShop(shop);
+        productRepository.save(product);
+    }
+
+    @Test
+    void writeProducts_shouldQuoteFieldsContainingCommasAndQuotes() throws Exception {
+        StringWriter out = new StringWriter();
+        exportService.writeProducts(username, out);
+
+        String[] lines = out.toString().split("\r\n");
+        assertEquals(2, lines.length);
+        assertEquals("id,name,barcode,brand,category,price,quantity,imageUrl", lines[0]);
+        assertTrue(lines[1].endsWith(",\"Tea, \"\"green\"\"\"," + username + "-tea,,,2.5,10,"), lines[1]);
+    }
+
+    @Test
+    void writeProducts_shouldKeepSpreadsheetsFromRunningTextAsFormulas() throws Exception {
+        Product product = new Product();
+        product.setName("=HYPERLINK(\"http://example.com/steal\",\"Click\")");
+        product.setBarcode(username + "-link");
+        product.setBrand("@Brand");
+        product.setCategory("-5+3");
+        product.setPrice(-1.5);
+        product.setQuantity(4);
+        product.setShop(shopRepository.findAll().stream()
+                .filter(shop -> shop.getOwner().getUsername().equals(username))
+                .findFirst().orElseThrow());
+        productRepository.save(product);
+
+        StringWriter out = new StringWriter();
+        exportService.writeProducts(username, out);
+
+        String line = Arrays.stream(out.toString().split("\r\n"))
+                .filter(candidate -> candidate.contains(username + "-link"))
+                .findFirst().orElseThrow();
+        assertTrue(line.endsWith(",\"'=HYPERLINK(\"\"http://example.com/steal\"\",\"\"Click\"\")\","
+                + username + "-link,'@Brand,'-5+3,-1.5,4,"), line);
+    }
+
+    @Test
+    void writeBillItems_shouldWriteOneRowPerItem() throws Exception {
+        BillRequest.CartItem item = new BillRequest.CartItem();
+        item.setBarcode(username + "-tea");
+        item.setQuantity(3);
+        BillRequest request = new BillRequest();
+        request.setCustomerName("Asha");
+        request.setItems(List.of(item));
+        billingService.createBill(request, username);
+
+        StringWriter bills = new StringWriter();
+        exportService.writeBills(username, null, null, bills);
+        assertEquals(2, bills.toString().split("\r\n").length);
+
+        StringWriter items = new StringWriter();
+        exportService.writeBillItems(username, null, null, items);
+        String[] lines = items.toString().split("\r\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains("," + username + "-tea,3,2.5,7.5"), lines[1]);
+    }
+}
@@ -0,0 +1,100 @@
+package com.sp.shop.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.sp.shop.cache.BarcodeIndex;
+import com.sp.shop.cache.ShopContextResolver;
+import com.sp.shop.config.SecondLevelCacheConfig;
+import com.sp.shop.dto.ImportReport;
+import com.sp.shop.entity.Role;
+import com.sp.shop.entity.Shop;
+import com.sp.shop.entity.User;
+import com.sp.shop.repository.ProductRepository;
+import com.sp.shop.repository.ShopRepository;
+import com.sp.shop.repository.UserRepository;
+import com.sp.shop.search.ProductSearchIndex;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ ProductImportService.class, ShopContextResolver.class, BarcodeIndex.class, ProductSearchIndex.class,
+        JacksonAutoConfiguration.class, SecondLevelCacheConfig.class })
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:import;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        // schema from the entities; RepositoryQueryPlanTest covers the Flyway migrations
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "shopmate.import.batch-size=5"
+})
+class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ShopRepository shopRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private String username;
+    private Shop shop;
+
+    @BeforeEach
+    void setUp() {
+        username = "owner" + System.nanoTime();
+        User owner = new User(null, username, "secret", username + "@example.com", Role.ROLE_SHOP_OWNER);
+        owner.setMobile("9876543210");
+        owner = userRepository.save(owner);
+
+        shop = new Shop();
+        shop.setName("Corner Store");
+        shop.setOwner(owner);
+        shop = shopRepository.save(shop);
+    }
+
+    @Test
+    void importProducts_shouldReportOnlyTheRowTheDatabaseRejects() throws Exception {
+        StringBuilder csv = new StringBuilder("name,barcode,price,quantity\n");
+        for (int i = 0; i < 5; i++) {
+            // Passes validation but not the database: the name column holds 255 characters
+            String name = i == 2 ? "x".repeat(300) : "Product " + i;
+            csv.append(name).append(',').append(username).append('-').append(i).append(",10,5\n");
+        }
+
+        ImportReport report = productImportService.importProducts(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                ProductImportService.Format.CSV, username);
+
+        assertEquals(5, report.getProcessed());
+        assertEquals(4, report.getInserted());
+        assertEquals(1, report.getFailed());
+        assertEquals(1, report.getErrors().size());
+        assertEquals(4, report.getErrors().get(0).getLine());  // the header is line 1
+        assertEquals(username + "-2", report.getErrors().get(0).getBarcode());
+        assertTrue(productRepository.findByShopAndBarcode(shop, username + "-2").isEmpty());
+        assertEquals(4, productRepository.findByShop(shop).size());
+    }
+}
@@ -0,0 +1,177 @@
+package com.sp.shop.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+
+import com.sp.shop.cache.ShopContextResolver;
+import com.sp.shop.config.SecondLevelCacheConfig;
+import com.sp.shop.dto.UserPage;
+import com.sp.shop.dto.UserResponseDTO;
+import com.sp.shop.entity.Role;
+import com.sp.shop.entity.User;
+import com.sp.shop.repository.UserRepository;
+import com.sp.shop.security.JwtUtil;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Admin user listing and search against H2 with Hibernate's MySQL SQL, so the LIKE escaping is the
+ * one production sends.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ UserService.class, SecondLevelCacheConfig.class, SimpleMeterRegistry.class })
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:users;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect"
+})
+class UserServiceTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private PasswordEncoder passwordEncoder;
+
+    @MockBean
+    private JwtUtil jwtUtil;
+
+    @MockBean
+    private EmailService emailService;
+
+    @MockBean
+    private ShopContextResolver shopContextResolver;
+
+    @BeforeEach
+    void setUp() {
+        save("alice", "alice@example.com", "9000000001", Role.ROLE_STAFF);
+        save("bob", "bob@example.com", "9000000002", Role.ROLE_SHOP_OWNER);
+        save("carol", "carol@alice.org", "9000000003", Role.ROLE_STAFF);
+        save("al_x", "alx@example.com", "9100000004", Role.ROLE_ADMIN, Role.ROLE_STAFF);
+        save("dave", "dave@example.com", "9000000005", Role.ROLE_STAFF);
+    }
+
+    @Test
+    void getUserPage_shouldWalkAllUsersByCursor() {
+        UserPage first = userService.getUserPage(null, null, 2);
+        assertEquals(List.of("alice", "bob"), usernames(first.getUsers()));
+
+        UserPage second = userService.getUserPage(null, first.getNextCursor(), 2);
+        assertEquals(List.of("carol", "al_x"), usernames(second.getUsers()));
+        assertEquals("ROLE_ADMIN", second.getUsers().get(1).getRole());
+
+        UserPage last = userService.getUserPage(null, second.getNextCursor(), 2);
+        assertEquals(List.of("dave"), usernames(last.getUsers()));
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void getUserPage_shouldMatchPrefixesOfUsernameEmailAndMobile() {
+        assertEquals(List.of("alice", "al_x"), usernames(userService.getUserPage("al", null, 10).getUsers()));
+        assertEquals(List.of("carol"), usernames(userService.getUserPage("carol@", null, 10).getUsers()));
+        assertEquals(List.of("al_x"), usernames(userService.getUserPage("91", null, 10).getUsers()));
+
+        // "_" is not a wildcard, and "ice" is not a prefix of anything
+        assertEquals(List.of("al_x"), usernames(userService.getUserPage("al_", null, 10).getUsers()));
+        assertEquals(List.of(), usernames(userService.getUserPage("ice", null, 10).getUsers()));
+
+        UserPage first = userService.getUserPage("al", null, 1);
+        assertEquals(List.of("alice"), usernames(first.getUsers()));
+        assertEquals(List.of("al_x"), usernames(userService.getUserPage("al", first.getNextCursor(), 1).getUsers()));
+    }
+
+    @Test
+    void searchUsers_shouldCountPrefixMatchesWithRoles() {
+        var page = userService.searchUsers("al", PageRequest.of(0, 10));
+        assertEquals(2, page.getTotalElements());
+        assertEquals("ROLE_STAFF", page.getContent().get(0).getRole());
+    }
+
+    @Test
+    void loginUser_shouldRehashWhenTheConfiguredCostChanged() {
+        User alice = userRepository.findByUsername("alice").orElseThrow();
+        alice.setVerified(true);
+        userRepository.save(alice);
+        when(passwordEncoder.matches("secret", "password-hash")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("password-hash")).thenReturn(true);
+        when(passwordEncoder.encode("secret")).thenReturn("password-hash-at-new-cost");
+        when(jwtUtil.generateToken(eq("alice"), any(), any())).thenReturn("token");
+
+        assertEquals("token", userService.loginUser("alice@example.com", "secret"));
+        assertEquals("password-hash-at-new-cost", userRepository.findByUsername("alice").orElseThrow().getPassword());
+    }
+
+    @Test
+    void registerUser_shouldRejectDuplicatesWithoutHashing() {
+        User sameEmail = new User(null, "alice2", "secret", "alice@example.com", Role.ROLE_STAFF);
+        sameEmail.setMobile("9000000009");
+        User sameUsername = new User(null, "alice", "secret", "alice2@example.com", Role.ROLE_STAFF);
+        sameUsername.setMobile("9000000009");
+
+        assertThrows(RuntimeException.class, () -> userService.registerUser(sameEmail));
+        assertThrows(RuntimeException.class, () -> userService.registerUser(sameUsername));
+        verify(passwordEncoder, never()).encode(anyString());
+    }
+
+    @Test
+    void getUserPage_shouldRejectMalformedCursor() {
+        assertThrows(IllegalArgumentException.class, () -> userService.getUserPage(null, "abc", 10));
+    }
+
+    @Test
+    void updateUser_shouldEvictTheCachedShopOfTheOldUsernameOnceSaved() {
+        User renamed = new User(null, "alice2", null, "alice@example.com", new HashSet<>(Set.of(Role.ROLE_STAFF)));
+        renamed.setMobile("9000000001");
+        doAnswer(invocation -> {
+            // The rename is already written, so a lookup racing the eviction cannot cache the old user
+            assertTrue(userRepository.findByUsername("alice2").isPresent());
+            return null;
+        }).when(shopContextResolver).evict("alice");
+
+        userService.updateUser("alice", renamed);
+
+        verify(shopContextResolver).evict("alice");
+    }
+
+    private void save(String username, String email, String mobile, Role... roles) {
+        User user = new User(null, username, "password-hash", email, new HashSet<>(Set.of(roles)));
+        user.setMobile(mobile);
+        userRepository.save(user);
+    }
+
+    private static List<String> usernames(List<UserResponseDTO> users) {
+        return users.stream().map(UserResponseDTO::getUsername).toList();
+    }
+}